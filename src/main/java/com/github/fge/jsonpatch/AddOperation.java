@@ -23,13 +23,12 @@ import java.util.List;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.fge.jackson.JacksonUtils;
 import com.github.fge.jackson.jsonpointer.JsonPointer;
 import com.github.fge.jackson.jsonpointer.JsonPointerException;
-import com.github.fge.jackson.jsonpointer.ReferenceToken;
-import com.github.fge.jackson.jsonpointer.TokenResolver;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 
@@ -79,9 +78,7 @@ import com.google.common.collect.Lists;
  * </pre>
  */
 public final class AddOperation extends PathValueOperation {
-	private static final ReferenceToken LAST_ARRAY_ELEMENT = ReferenceToken.fromRaw("-");
-
-	private ObjectMapper objectMapper = new ObjectMapper();
+	private static final JsonNodeFactory FACTORY = JacksonUtils.nodeFactory();
 
 	@JsonCreator
 	public AddOperation(@JsonProperty("path") final JsonPointer path, @JsonProperty("value") final JsonNode value) {
@@ -90,6 +87,33 @@ public final class AddOperation extends PathValueOperation {
 
 	@Override
 	public JsonNode apply(final JsonNode node) throws JsonPatchException {
+		return applyInPlace(path.isEmpty() ? node : node.deepCopy());
+	}
+
+	@Override
+	public JsonNode applyInPlace(final JsonNode node) throws JsonPatchException {
+		return applyResolved(node, ResolvedPointer.of(path), null);
+	}
+
+	@Override
+	JsonNode applyResolved(final JsonNode node, final ResolvedPointer path, final ResolvedPointer from)
+			throws JsonPatchException {
+		return add(node, path, value.deepCopy());
+	}
+
+	/**
+	 * Add a value to a JSON value, modifying it
+	 *
+	 * <p>The value is added as is, not copied.</p>
+	 *
+	 * @param node the value to add to
+	 * @param path the path to add at
+	 * @param value the value to add
+	 * @return the patched value
+	 * @throws JsonPatchException the value cannot be added
+	 */
+	static JsonNode add(final JsonNode node, final ResolvedPointer path, final JsonNode value)
+			throws JsonPatchException {
 		if (path.isEmpty())
 			return value;
 
@@ -98,7 +122,7 @@ public final class AddOperation extends PathValueOperation {
 		 * and be a container (ie an array or an object) for the add operation
 		 * to work.
 		 */
-		final JsonNode parentNode = path.parent().path(node);
+		final JsonNode parentNode = path.parentIn(node);
 		if (parentNode.isMissingNode() || parentNode.isNull()) {
 			// throw new
 			// JsonPatchException(BUNDLE.getMessage("jsonPatch.noSuchParent"));
@@ -109,7 +133,7 @@ public final class AddOperation extends PathValueOperation {
 			 */
 			try {
 
-				JsonPointer preexistingPath = pathExistUpto(node, path);
+				JsonPointer preexistingPath = pathExistUpto(node, path.pointer);
 				/*
 				 * as we have already checked for missing node the newPath
 				 * cannot be empty
@@ -118,7 +142,7 @@ public final class AddOperation extends PathValueOperation {
 				/*
 				 * This is missing path that we need to create
 				 */
-				JsonPointer missingPath = new JsonPointer(path.toString().replaceFirst(preexistingPath.toString(), ""));
+				JsonPointer missingPath = new JsonPointer(path.pointer.toString().replaceFirst(preexistingPath.toString(), ""));
 				/*
 				 * This method creates the missing path for the value
 				 */
@@ -144,7 +168,8 @@ public final class AddOperation extends PathValueOperation {
 			if (!parentNode.isValueNode())
 				throw new JsonPatchException(BUNDLE.getMessage("jsonPatch.parentNotContainer"));
 		}
-		return parentNode.isArray() ? addToArray(path, node) : addToObject(path, node);
+		return parentNode.isArray() ? addToArray(path, parentNode, node, value)
+				: addToObject(path, parentNode, node, value);
 	}
 
 	/**
@@ -155,36 +180,32 @@ public final class AddOperation extends PathValueOperation {
 	 * @param newValue
 	 * @return
 	 */
-	private JsonNode addToArray(JsonNode node, JsonPointer newPath, JsonNode newValue) {
+	private static JsonNode addToArray(JsonNode node, JsonPointer newPath, JsonNode newValue) {
 
-		final JsonNode ret = node.deepCopy();
+		final JsonNode ret = node;
 		final ArrayNode target = (ArrayNode) newPath.get(ret);
 		target.add(newValue);
 
 		return ret;
 	}
 
-	private JsonNode addToArray(final JsonPointer path, final JsonNode node) throws JsonPatchException {
-		final JsonNode ret = node.deepCopy();
-		final ArrayNode target = (ArrayNode) path.parent().get(ret);
+	private static JsonNode addToArray(final ResolvedPointer path, final JsonNode parentNode, final JsonNode node,
+			final JsonNode value) throws JsonPatchException {
+		final JsonNode ret = node;
+		final ArrayNode target = (ArrayNode) parentNode;
 
 		List<JsonNode> existingValues = Lists.newArrayList(target);
 		// check duplicate
 		if (!existingValues.contains(value)) {
-			final TokenResolver<JsonNode> token = Iterables.getLast(path);
-
-			if (token.getToken().equals(LAST_ARRAY_ELEMENT)) {
+			if (path.append) {
 				target.add(value);
 				return ret;
 			}
 
 			final int size = target.size();
-			final int index;
-			try {
-				index = Integer.parseInt(token.toString());
-			} catch (NumberFormatException ignored) {
+			if (path.index == null)
 				throw new JsonPatchException(BUNDLE.getMessage("jsonPatch.notAnIndex"));
-			}
+			final int index = path.index;
 
 			if (index < 0 || index > size)
 				throw new JsonPatchException(BUNDLE.getMessage("jsonPatch.noSuchIndex"));
@@ -195,17 +216,17 @@ public final class AddOperation extends PathValueOperation {
 		return ret;
 	}
 
-	private JsonNode addToObject(final JsonPointer path, final JsonNode node) throws JsonPatchException {
-		final JsonNode ret = node.deepCopy();
-		final ObjectNode target = (ObjectNode) path.parent().get(ret);
+	private static JsonNode addToObject(final ResolvedPointer path, final JsonNode parentNode, final JsonNode node,
+			final JsonNode value) throws JsonPatchException {
+		final JsonNode ret = node;
+		final ObjectNode target = (ObjectNode) parentNode;
 
-		String lastOfPath = Iterables.getLast(path).getToken().getRaw();
-		if (lastOfPath.equals("-")) {
+		if (path.append) {
 			if (value.isArray()) {
 				throw new JsonPatchException(BUNDLE.getMessage("jsonPatch.noSuchIndex"));
 			}
 		}
-		target.put(lastOfPath, value);
+		target.put(path.last, value);
 
 		return ret;
 	}
@@ -219,10 +240,11 @@ public final class AddOperation extends PathValueOperation {
 	 * @return
 	 * @throws JsonPatchException
 	 */
-	private JsonNode addToObject(JsonNode node, JsonPointer newPath, JsonNode newValue) throws JsonPatchException {
+	private static JsonNode addToObject(JsonNode node, JsonPointer newPath, JsonNode newValue)
+			throws JsonPatchException {
 
-		final JsonNode ret = node.deepCopy();
-		JsonNode target = objectMapper.createObjectNode();
+		final JsonNode ret = node;
+		JsonNode target;
 
 		if (newPath.isEmpty()) {
 
@@ -265,7 +287,7 @@ public final class AddOperation extends PathValueOperation {
 
 	}
 
-	private JsonPointer pathExistUpto(final JsonNode node, final JsonPointer path) {
+	private static JsonPointer pathExistUpto(final JsonNode node, final JsonPointer path) {
 		JsonPointer newPath = path;
 		if (!newPath.isEmpty()) {
 			JsonNode valueAtPath = path.path(node);
@@ -284,14 +306,14 @@ public final class AddOperation extends PathValueOperation {
 	 * @param path
 	 * @return
 	 */
-	private JsonNode pathBuilder(JsonPointer path, JsonNode value) {
+	private static JsonNode pathBuilder(JsonPointer path, JsonNode value) {
 
 		if (!path.isEmpty()) {
 			String lastOfPath = Iterables.getLast(path).getToken().getRaw();
 			path = path.parent();
 
-			ArrayNode childArrayNode = objectMapper.createArrayNode();
-			JsonNode childObjectNode = objectMapper.createObjectNode();
+			ArrayNode childArrayNode = FACTORY.arrayNode();
+			JsonNode childObjectNode = FACTORY.objectNode();
 
 			if (lastOfPath.matches("[0-9]+") || (lastOfPath.equals("-"))) {
 				childArrayNode.add(value);
@@ -27,11 +27,8 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.SerializerProvider;
 import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
-import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.MissingNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.github.fge.jackson.jsonpointer.JsonPointer;
-import com.google.common.collect.Iterables;
 
 import java.io.IOException;
 
@@ -59,14 +56,23 @@ public final class ArrayObjectRemoveOperation
         if (path.path(node).isMissingNode())
             throw new JsonPatchException(BUNDLE.getMessage(
                 "jsonPatch.noSuchPath"));
-        final JsonNode ret = node.deepCopy();
-        final JsonNode parentNode = path.parent().get(ret);
-        final String raw = Iterables.getLast(path).getToken().getRaw();
-        if (parentNode.isObject())
-            ((ObjectNode) parentNode).remove(raw);
-        else
-            ((ArrayNode) parentNode).remove(Integer.parseInt(raw));
-        return ret;
+        return RemoveOperation.remove(node.deepCopy(),
+            ResolvedPointer.of(path));
+    }
+
+    @Override
+    public JsonNode applyInPlace(final JsonNode node)
+        throws JsonPatchException
+    {
+        return RemoveOperation.remove(node, ResolvedPointer.of(path));
+    }
+
+    @Override
+    JsonNode applyResolved(final JsonNode node, final ResolvedPointer path,
+        final ResolvedPointer from)
+        throws JsonPatchException
+    {
+        return RemoveOperation.remove(node, path);
     }
 
     
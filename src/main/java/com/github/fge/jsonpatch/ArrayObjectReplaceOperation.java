@@ -24,7 +24,6 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.github.fge.jackson.jsonpointer.JsonPointer;
-import com.google.common.collect.Iterables;
 
 /**
  * JSON Patch {@code replace} operation
@@ -59,16 +58,28 @@ public final class ArrayObjectReplaceOperation extends PathOldNewValueOperation
 		 */
 		if (path.path(node).isMissingNode())
 			throw new JsonPatchException(BUNDLE.getMessage("jsonPatch.noSuchPath"));
+		return applyInPlace(path.isEmpty() ? node : node.deepCopy());
+	}
+
+	@Override
+	public JsonNode applyInPlace(final JsonNode node) throws JsonPatchException {
+		return applyResolved(node, ResolvedPointer.of(path), null);
+	}
+
+	@Override
+	JsonNode applyResolved(final JsonNode node, final ResolvedPointer path, final ResolvedPointer from)
+			throws JsonPatchException {
+		if (path.pointer.path(node).isMissingNode())
+			throw new JsonPatchException(BUNDLE.getMessage("jsonPatch.noSuchPath"));
 		final JsonNode replacement = oldValue.deepCopy();
 		if (path.isEmpty())
 			return replacement;
-		final JsonNode ret = node.deepCopy();
-		final JsonNode parent = path.parent().get(ret);
-		final String rawToken = Iterables.getLast(path).getToken().getRaw();
+		final JsonNode ret = node;
+		final JsonNode parent = path.parentIn(ret);
 		if (parent.isObject())
-			((ObjectNode) parent).set(rawToken, replacement);
+			((ObjectNode) parent).set(path.last, replacement);
 		else
-			((ArrayNode) parent).set(Integer.parseInt(rawToken), replacement);
+			((ArrayNode) parent).set(path.index, replacement);
 		return ret;
 	}
 }
@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+
+package com.github.fge.jsonpatch;
+
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.concurrent.Immutable;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.jackson.jsonpointer.TokenResolver;
+import com.github.fge.jsonpatch.JsonPatch.ApplyMode;
+import com.github.fge.msgsimple.bundle.MessageBundle;
+import com.github.fge.msgsimple.load.MessageBundles;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Sets;
+
+/**
+ * A JSON Patch ready to be applied to any number of values
+ *
+ * <p>
+ * Obtain an instance using {@link JsonPatch#compile()}. The paths of all
+ * operations are resolved once: their parents are computed, and their last
+ * reference tokens are worked out as object member names, array indices or
+ * the end of an array. Applying a compiled patch then only walks the values.
+ * </p>
+ *
+ * <p>
+ * Instances are immutable, and can be applied to different values from
+ * several threads at once.
+ * </p>
+ */
+@Immutable
+public final class CompiledPatch {
+	private static final MessageBundle BUNDLE = MessageBundles.getBundle(JsonPatchMessages.class);
+
+	private static final JsonNodeFactory FACTORY = JacksonUtils.nodeFactory();
+
+	private final List<Step> steps;
+
+	CompiledPatch(final List<JsonPatchOperation> operations) {
+		final ImmutableList.Builder<Step> builder = ImmutableList.builder();
+		for (final JsonPatchOperation operation : operations)
+			builder.add(new Step(operation));
+		steps = builder.build();
+	}
+
+	/**
+	 * Apply this patch to a JSON value
+	 *
+	 * <p>
+	 * The value is left untouched: it is copied once, and the copy is patched.
+	 * </p>
+	 *
+	 * @param node
+	 *            the value to apply the patch to
+	 * @return the patched JSON value
+	 * @throws JsonPatchException
+	 *             failed to apply patch
+	 * @throws NullPointerException
+	 *             input is null
+	 */
+	public JsonNode apply(final JsonNode node) throws JsonPatchException {
+		return apply(node, ApplyMode.COPY);
+	}
+
+	/**
+	 * Apply this patch to a JSON value
+	 *
+	 * @param node
+	 *            the value to apply the patch to
+	 * @param mode
+	 *            how to treat the value
+	 * @return the patched JSON value
+	 * @throws JsonPatchException
+	 *             failed to apply patch; in {@link ApplyMode#IN_PLACE} mode,
+	 *             the value may have been partially patched
+	 * @throws NullPointerException
+	 *             input is null
+	 * @see JsonPatch#apply(JsonNode, ApplyMode)
+	 */
+	public JsonNode apply(final JsonNode node, final ApplyMode mode) throws JsonPatchException {
+		BUNDLE.checkNotNull(node, "jsonPatch.nullInput");
+		BUNDLE.checkNotNull(mode, "common.nullArgument");
+		if (mode == ApplyMode.COPY_ON_WRITE)
+			return applyCopyOnWrite(node);
+		JsonNode ret = mode == ApplyMode.COPY ? node.deepCopy() : node;
+		for (final Step step : steps)
+			ret = step.operation.applyResolved(ret, step.path, step.from);
+
+		return ret;
+	}
+
+	/*
+	 * Before each operation, copy the containers it may modify, that is, the
+	 * containers on the way to the parents of its paths, unless they are
+	 * copies already
+	 */
+	private JsonNode applyCopyOnWrite(final JsonNode node) throws JsonPatchException {
+		final Set<JsonNode> copies = Sets.newIdentityHashSet();
+		JsonNode ret = node;
+		for (final Step step : steps) {
+			if (!(step.operation instanceof TestOperation)) {
+				if (step.operation instanceof MoveOperation)
+					ret = copySpine(ret, step.from, copies);
+				ret = copySpine(ret, step.path, copies);
+			}
+			ret = step.operation.applyResolved(ret, step.path, step.from);
+		}
+
+		return ret;
+	}
+
+	/*
+	 * Copy the containers from the root down to the parent of a path, as far
+	 * as they exist; each copy is shallow, and replaces the original in its
+	 * (copied) parent
+	 */
+	private static JsonNode copySpine(final JsonNode root, final ResolvedPointer path, final Set<JsonNode> copies) {
+		if (path.isEmpty())
+			return root;
+		final JsonNode ret = shallowCopy(root, copies);
+		JsonNode parent = ret;
+		JsonNode child;
+		JsonNode copy;
+		String raw;
+		for (final TokenResolver<JsonNode> token : path.parent) {
+			child = token.get(parent);
+			if (child == null || !child.isContainerNode())
+				break;
+			copy = shallowCopy(child, copies);
+			if (copy != child) {
+				raw = token.getToken().getRaw();
+				if (parent.isObject())
+					((ObjectNode) parent).put(raw, copy);
+				else
+					((ArrayNode) parent).set(Integer.parseInt(raw), copy);
+			}
+			parent = copy;
+		}
+		return ret;
+	}
+
+	private static JsonNode shallowCopy(final JsonNode node, final Set<JsonNode> copies) {
+		if (!node.isContainerNode() || copies.contains(node))
+			return node;
+		final JsonNode ret = node.isObject() ? FACTORY.objectNode().setAll((ObjectNode) node)
+				: FACTORY.arrayNode().addAll((ArrayNode) node);
+		copies.add(ret);
+		return ret;
+	}
+
+	@Override
+	public String toString() {
+		final ImmutableList.Builder<JsonPatchOperation> builder = ImmutableList.builder();
+		for (final Step step : steps)
+			builder.add(step.operation);
+		return builder.build().toString();
+	}
+
+	/*
+	 * An operation with its paths resolved; the paths of the operation itself
+	 * are not looked at anymore
+	 */
+	private static final class Step {
+		private final JsonPatchOperation operation;
+		private final ResolvedPointer path;
+		private final ResolvedPointer from;
+
+		private Step(final JsonPatchOperation operation) {
+			this.operation = operation;
+			path = ResolvedPointer.of(operation.getPath());
+			from = operation instanceof DualPathOperation ? ResolvedPointer.of(((DualPathOperation) operation).from)
+					: null;
+		}
+	}
+}
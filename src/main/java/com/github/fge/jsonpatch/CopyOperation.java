@@ -60,4 +60,24 @@ public final class CopyOperation
                 "jsonPatch.noSuchPath"));
         return new AddOperation(path, dupData).apply(node);
     }
+
+    @Override
+    public JsonNode applyInPlace(final JsonNode node)
+        throws JsonPatchException
+    {
+        return applyResolved(node, ResolvedPointer.of(path),
+            ResolvedPointer.of(from));
+    }
+
+    @Override
+    JsonNode applyResolved(final JsonNode node, final ResolvedPointer path,
+        final ResolvedPointer from)
+        throws JsonPatchException
+    {
+        final JsonNode dupData = from.pointer.path(node).deepCopy();
+        if (dupData.isMissingNode())
+            throw new JsonPatchException(BUNDLE.getMessage(
+                "jsonPatch.noSuchPath"));
+        return AddOperation.add(node, path, dupData);
+    }
 }
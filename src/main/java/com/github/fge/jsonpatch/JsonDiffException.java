@@ -4,7 +4,7 @@ package com.github.fge.jsonpatch;
  * @author Ritesh
  *
  */
-public final class JsonDiffException extends JsonPatchException{
+public class JsonDiffException extends JsonPatchException{
 
 	 /**
 	 * 
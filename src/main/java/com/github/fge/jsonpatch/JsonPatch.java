@@ -120,6 +120,11 @@ public final class JsonPatch implements JsonSerializable {
 	 */
 	private final List<JsonPatchOperation> operations;
 
+	/**
+	 * The compiled form of this patch, built on first use
+	 */
+	private volatile CompiledPatch compiled;
+
 	/**
 	 * Constructor
 	 *
@@ -155,6 +160,10 @@ public final class JsonPatch implements JsonSerializable {
 	/**
 	 * Apply this patch to a JSON value
 	 *
+	 * <p>
+	 * The value is left untouched: it is copied once, and the copy is patched.
+	 * </p>
+	 *
 	 * @param node
 	 *            the value to apply the patch to
 	 * @return the patched JSON value
@@ -164,17 +173,62 @@ public final class JsonPatch implements JsonSerializable {
 	 *             input is null
 	 */
 	public JsonNode apply(final JsonNode node) throws JsonPatchException {
-		BUNDLE.checkNotNull(node, "jsonPatch.nullInput");
-		JsonNode ret = node;
-		for (final JsonPatchOperation operation : operations)
-			ret = operation.apply(ret);
+		return apply(node, ApplyMode.COPY);
+	}
+
+	/**
+	 * Apply this patch to a JSON value, copying it first or not
+	 *
+	 * <p>
+	 * Either way, operations modify the same tree one after the other, so
+	 * that the cost of applying a patch depends on the patch, not on the
+	 * size of the value.
+	 * </p>
+	 *
+	 * @param node
+	 *            the value to apply the patch to
+	 * @param mode
+	 *            whether to copy the value first
+	 * @return the patched JSON value
+	 * @throws JsonPatchException
+	 *             failed to apply patch; in {@link ApplyMode#IN_PLACE} mode,
+	 *             the value may have been partially patched
+	 * @throws NullPointerException
+	 *             input is null
+	 */
+	public JsonNode apply(final JsonNode node, final ApplyMode mode) throws JsonPatchException {
+		return compile().apply(node, mode);
+	}
 
+	/**
+	 * Compile this patch
+	 *
+	 * <p>
+	 * The paths of all operations are resolved once and for all. The compiled
+	 * patch is immutable; it is built on the first call, and this call as well
+	 * as {@link #apply(JsonNode, ApplyMode)} reuse it afterwards.
+	 * </p>
+	 *
+	 * @return the compiled patch
+	 */
+	public CompiledPatch compile() {
+		CompiledPatch ret = compiled;
+		if (ret == null) {
+			ret = new CompiledPatch(operations);
+			compiled = ret;
+		}
 		return ret;
 	}
 
 	/**
 	 * Apply this patch to a JSON value
 	 *
+	 * <p>
+	 * Paths located using a {@code value_locator} are resolved anew for each
+	 * value, and operations are left untouched: the same patch can be applied
+	 * to several values from different threads at once.
+	 * </p>
+	 *
 	 * @param node
 	 *            the value to apply the patch to
 	 * @return the patched JSON value
@@ -217,46 +271,68 @@ public final class JsonPatch implements JsonSerializable {
 		finalJsonPatchOperations.addAll(patchesToRemove);
 		finalJsonPatchOperations.addAll(addOrUpdateJsonPatch);
 		JsonNode ret = node.deepCopy();
+		final ValueLocatorIndex index = new ValueLocatorIndex();
+		/*
+		 * Paths located with value_locator are resolved for this application
+		 * only; operations are never modified, so that a patch can be applied
+		 * from several threads at once
+		 */
 		for (final JsonPatchOperation operation : finalJsonPatchOperations) {
-			JsonPointer path = operation.getPath();
-			JsonNode valueLocator = operation.getValue_locator();
+			final JsonPointer path = operation.getPath();
+			final JsonNode valueLocator = operation.getValue_locator();
+			JsonPointer resolvedPath = path;
 			// path and value Locator cannot be null
 			/*
 			 * valueLocator should be present and should be an ObjectNode always
 			 */
-			if ((path != null) && ((valueLocator != null) && valueLocator.isObject())) {
-				JsonPointer newPath = pathFixer(path, ret, valueLocator, performStrictValidation);
-				if (newPath == null) {
-					operation.path = null;
-
-				} else {
-					operation.path = newPath;
-					operation.value_locator = null;
-				}
-			}
-			if (operation.path != null) {
-				ret = operation.apply(ret);
-
+			if ((path != null) && ((valueLocator != null) && valueLocator.isObject()))
+				resolvedPath = pathFixer(path, ret, valueLocator, performStrictValidation, index);
+			if (resolvedPath != null) {
+				final JsonPointer from = operation instanceof DualPathOperation
+						? ((DualPathOperation) operation).from : null;
+				ret = operation.applyResolved(ret, ResolvedPointer.of(resolvedPath), ResolvedPointer.of(from));
+				track(index, operation, resolvedPath, from);
 			}
-			operation.path = path;
-			operation.value_locator = valueLocator;
-
 		}
 		return ret;
 	}
 
+	/*
+	 * Tell the index of value locators which values an operation has changed,
+	 * now that it has been applied
+	 */
+	private static void track(final ValueLocatorIndex index, final JsonPatchOperation operation,
+			final JsonPointer path, final JsonPointer from) {
+		if (operation instanceof TestOperation)
+			return;
+		if (operation instanceof RemoveOperation || operation instanceof ArrayObjectRemoveOperation) {
+			index.removed(path);
+			return;
+		}
+		if (operation instanceof MoveOperation)
+			index.removed(from);
+		index.written(path);
+	}
+
 	/**
 	 * This method corrects the path with the help of value_locator
 	 * 
+	 * <p>
+	 * Elements of the array are looked up in an index built once per array
+	 * and kept up to date as operations are applied, instead of scanning the
+	 * array.
+	 * </p>
+	 * 
 	 * @param path
 	 * @param node
 	 * @param valueLocator
 	 * @param performStrictValidation
+	 * @param index
 	 * @return
 	 * @throws JsonPatchException
 	 */
 	private JsonPointer pathFixer(JsonPointer path, JsonNode node, JsonNode valueLocator,
-			boolean performStrictValidation) throws JsonPatchException {
+			boolean performStrictValidation, ValueLocatorIndex index) throws JsonPatchException {
 
 		// new JsonPointer to correct the path
 		JsonPointer newPath = path.parent();
@@ -275,35 +351,17 @@ public final class JsonPatch implements JsonSerializable {
 
 		final JsonNode presentNode = newPath.get(node);
 
-		// All the Field names to List
-		List<String> valueLocatorFields = Lists.newArrayList(valueLocator.fieldNames());
 		if (presentNode.isArray()) {
 			/*
-			 * Take all the key:values to match from value_locator to Map.
+			 * Indices of the elements having all the key:values of value_locator
 			 */
-			Map<String, JsonNode> valueLocatorMap = new HashMap<String, JsonNode>();
-
-			for (String eachFieldName : valueLocatorFields) {
-				valueLocatorMap.put(eachFieldName, valueLocator.get(eachFieldName));
-			}
-			/*
-			 * Take all the key:values to match from given node to Map.
-			 */
-			Map<String, JsonNode> eachNodeMap = new HashMap<String, JsonNode>();
-
-			for (int index = 0; index < presentNode.size(); index++) {
-
-				JsonNode eachParentNode = presentNode.get(index);
-				for (String eachFieldName : valueLocatorFields) {
-					eachNodeMap.put(eachFieldName, eachParentNode.get(eachFieldName));
-				}
-				if (eachNodeMap.equals(valueLocatorMap)) {
-					located = true;
-					newPath = newPath.append(index);
-					if (unknownLastSecondPartOfPath) {
-						String lastOfPath = Iterables.getLast(path).getToken().getRaw();
-						newPath = newPath.append(lastOfPath);
-					}
+			final List<Integer> indices = index.find(newPath, presentNode, valueLocator);
+			for (final int eachIndex : indices) {
+				located = true;
+				newPath = newPath.append(eachIndex);
+				if (unknownLastSecondPartOfPath) {
+					String lastOfPath = Iterables.getLast(path).getToken().getRaw();
+					newPath = newPath.append(lastOfPath);
 				}
 			}
 		} else {
@@ -326,6 +384,27 @@ public final class JsonPatch implements JsonSerializable {
 		return operations.toString();
 	}
 
+	/**
+	 * How a patch treats the value it is applied to
+	 */
+	public enum ApplyMode {
+		/**
+		 * Patch a copy of the value, leaving the value untouched
+		 */
+		COPY,
+		/**
+		 * Patch the value itself; the patched value shares all the nodes of
+		 * the original value which the patch did not change
+		 */
+		IN_PLACE,
+		/**
+		 * Leave the value untouched, copying only the containers on the way
+		 * to the values the patch changes; the patched value shares all other
+		 * nodes with the original value
+		 */
+		COPY_ON_WRITE
+	}
+
 	public void serialize(final JsonGenerator jgen, final SerializerProvider provider) throws IOException {
 		jgen.writeStartArray();
 		for (final JsonPatchOperation op : operations)
@@ -70,9 +70,9 @@ public abstract class JsonPatchOperation
 	 *
 	 * However, we need to serialize using .toString().
 	 */
-	protected JsonPointer path;
+	protected final JsonPointer path;
 
-	protected JsonNode value_locator;
+	protected final JsonNode value_locator;
 
 	/**
 	 * Constructor
@@ -81,8 +81,7 @@ public abstract class JsonPatchOperation
 	 * @param path the JSON Pointer for this operation
 	 */
 	protected JsonPatchOperation(final String op, final JsonPointer path) {
-		this.op = op;
-		this.path = path;
+		this(op, path, null);
 	}
 
 	/**
@@ -108,6 +107,46 @@ public abstract class JsonPatchOperation
 	public abstract JsonNode apply(final JsonNode node)
 		throws JsonPatchException;
 
+	/**
+	 * Apply this operation to a JSON value, modifying it
+	 *
+	 * <p>Unlike {@link #apply(JsonNode)}, the value is not copied first: it is
+	 * modified where the operation applies, and the returned value shares all
+	 * its nodes but those the operation changed. If the operation fails, the
+	 * value may have been partially modified.</p>
+	 *
+	 * <p>This implementation falls back to {@link #apply(JsonNode)}.</p>
+	 *
+	 * @param node the value to patch
+	 * @return the patched value, which may be the same node
+	 * @throws JsonPatchException operation failed to apply to this value
+	 */
+	public JsonNode applyInPlace(final JsonNode node)
+		throws JsonPatchException
+	{
+		return apply(node);
+	}
+
+	/**
+	 * Apply this operation to a JSON value, modifying it, at resolved paths
+	 *
+	 * <p>The resolved paths stand for the paths of this operation; this
+	 * implementation ignores them and falls back to {@link
+	 * #applyInPlace(JsonNode)}.</p>
+	 *
+	 * @param node the value to patch
+	 * @param path the resolved path
+	 * @param from the resolved source path, for operations which have one
+	 * @return the patched value, which may be the same node
+	 * @throws JsonPatchException operation failed to apply to this value
+	 */
+	JsonNode applyResolved(final JsonNode node, final ResolvedPointer path,
+		final ResolvedPointer from)
+		throws JsonPatchException
+	{
+		return applyInPlace(node);
+	}
+
 	public String getOp() {
 		return op;
 	}
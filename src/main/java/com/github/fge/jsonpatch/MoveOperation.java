@@ -86,4 +86,28 @@ public final class MoveOperation
         final JsonPatchOperation add = new AddOperation(path, movedNode);
         return add.apply(remove.apply(node));
     }
+
+    @Override
+    public JsonNode applyInPlace(final JsonNode node)
+        throws JsonPatchException
+    {
+        return applyResolved(node, ResolvedPointer.of(path),
+            ResolvedPointer.of(from));
+    }
+
+    @Override
+    JsonNode applyResolved(final JsonNode node, final ResolvedPointer path,
+        final ResolvedPointer from)
+        throws JsonPatchException
+    {
+        if (from.pointer.equals(path.pointer))
+            return node;
+        final JsonNode movedNode = from.pointer.path(node);
+        if (movedNode.isMissingNode())
+            throw new JsonPatchException(BUNDLE.getMessage(
+                "jsonPatch.noSuchPath"));
+        // Detached by its removal, the moved node can be added as is
+        return AddOperation.add(RemoveOperation.remove(node, from), path,
+            movedNode);
+    }
 }
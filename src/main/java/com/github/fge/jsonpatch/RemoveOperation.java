@@ -30,7 +30,6 @@ import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.MissingNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.github.fge.jackson.jsonpointer.JsonPointer;
-import com.google.common.collect.Iterables;
 
 import java.io.IOException;
 
@@ -58,14 +57,46 @@ public final class RemoveOperation
         if (path.path(node).isMissingNode())
             throw new JsonPatchException(BUNDLE.getMessage(
                 "jsonPatch.noSuchPath"));
-        final JsonNode ret = node.deepCopy();
-        final JsonNode parentNode = path.parent().get(ret);
-        final String raw = Iterables.getLast(path).getToken().getRaw();
+        return remove(node.deepCopy(), ResolvedPointer.of(path));
+    }
+
+    @Override
+    public JsonNode applyInPlace(final JsonNode node)
+        throws JsonPatchException
+    {
+        return remove(node, ResolvedPointer.of(path));
+    }
+
+    @Override
+    JsonNode applyResolved(final JsonNode node, final ResolvedPointer path,
+        final ResolvedPointer from)
+        throws JsonPatchException
+    {
+        return remove(node, path);
+    }
+
+    /**
+     * Remove a value from a JSON value, modifying it
+     *
+     * @param node the value to remove from
+     * @param path the path of the value to remove
+     * @return the patched value
+     * @throws JsonPatchException there is no value at this path
+     */
+    static JsonNode remove(final JsonNode node, final ResolvedPointer path)
+        throws JsonPatchException
+    {
+        if (path.isEmpty())
+            return MissingNode.getInstance();
+        if (path.pointer.path(node).isMissingNode())
+            throw new JsonPatchException(BUNDLE.getMessage(
+                "jsonPatch.noSuchPath"));
+        final JsonNode parentNode = path.parentIn(node);
         if (parentNode.isObject())
-            ((ObjectNode) parentNode).remove(raw);
+            ((ObjectNode) parentNode).remove(path.last);
         else
-            ((ArrayNode) parentNode).remove(Integer.parseInt(raw));
-        return ret;
+            ((ArrayNode) parentNode).remove(path.index);
+        return node;
     }
 
     public void serialize(final JsonGenerator jgen,
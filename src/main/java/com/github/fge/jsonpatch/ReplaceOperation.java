@@ -25,7 +25,6 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.github.fge.jackson.jsonpointer.JsonPointer;
-import com.google.common.collect.Iterables;
 
 /**
  * JSON Patch {@code replace} operation
@@ -66,16 +65,33 @@ public final class ReplaceOperation
         if (path.path(node).isMissingNode())
             throw new JsonPatchException(BUNDLE.getMessage(
                 "jsonPatch.noSuchPath"));
+        return applyInPlace(path.isEmpty() ? node : node.deepCopy());
+    }
+
+    @Override
+    public JsonNode applyInPlace(final JsonNode node)
+        throws JsonPatchException
+    {
+        return applyResolved(node, ResolvedPointer.of(path), null);
+    }
+
+    @Override
+    JsonNode applyResolved(final JsonNode node, final ResolvedPointer path,
+        final ResolvedPointer from)
+        throws JsonPatchException
+    {
+        if (path.pointer.path(node).isMissingNode())
+            throw new JsonPatchException(BUNDLE.getMessage(
+                "jsonPatch.noSuchPath"));
         final JsonNode replacement = value.deepCopy();
         if (path.isEmpty())
             return replacement;
-        final JsonNode ret = node.deepCopy();
-        final JsonNode parent = path.parent().get(ret);
-        final String rawToken = Iterables.getLast(path).getToken().getRaw();
+        final JsonNode ret = node;
+        final JsonNode parent = path.parentIn(ret);
         if (parent.isObject())
-            ((ObjectNode) parent).put(rawToken, replacement);
+            ((ObjectNode) parent).put(path.last, replacement);
         else
-            ((ArrayNode) parent).set(Integer.parseInt(rawToken), replacement);
+            ((ArrayNode) parent).set(path.index, replacement);
         return ret;
     }
 }
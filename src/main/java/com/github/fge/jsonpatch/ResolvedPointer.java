@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch;
+
+import javax.annotation.concurrent.Immutable;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+import com.google.common.collect.Iterables;
+
+/**
+ * A JSON Pointer with its parent and last reference token worked out
+ *
+ * <p>
+ * Operations only ever look at the parent of their paths, and at how their
+ * last reference token reads: as an object member name, an array index or the
+ * end of an array ({@code -}). This is computed once here, instead of each
+ * time an operation is applied.
+ * </p>
+ */
+@Immutable
+final class ResolvedPointer {
+	private static final String LAST_ARRAY_ELEMENT = "-";
+
+	/**
+	 * The pointer
+	 */
+	final JsonPointer pointer;
+
+	/**
+	 * The parent of the pointer, or null if the pointer is empty
+	 */
+	final JsonPointer parent;
+
+	/**
+	 * The raw last reference token, or null if the pointer is empty
+	 */
+	final String last;
+
+	/**
+	 * The last reference token as an integer, or null if it does not read as
+	 * one
+	 */
+	final Integer index;
+
+	/**
+	 * True if the last reference token stands for the end of an array
+	 */
+	final boolean append;
+
+	private ResolvedPointer(final JsonPointer pointer) {
+		this.pointer = pointer;
+		if (pointer.isEmpty()) {
+			parent = null;
+			last = null;
+			index = null;
+			append = false;
+			return;
+		}
+		parent = pointer.parent();
+		last = Iterables.getLast(pointer).getToken().getRaw();
+		index = parseIndex(last);
+		append = LAST_ARRAY_ELEMENT.equals(last);
+	}
+
+	/**
+	 * Resolve a pointer
+	 *
+	 * @param pointer the pointer, may be null
+	 * @return the resolved pointer, or null if the pointer is null
+	 */
+	static ResolvedPointer of(final JsonPointer pointer) {
+		return pointer == null ? null : new ResolvedPointer(pointer);
+	}
+
+	boolean isEmpty() {
+		return parent == null;
+	}
+
+	/**
+	 * Return the value at the parent of the pointer in a JSON value
+	 *
+	 * @param node the JSON value
+	 * @return the parent value, or a missing node if there is none
+	 */
+	JsonNode parentIn(final JsonNode node) {
+		return parent.path(node);
+	}
+
+	private static Integer parseIndex(final String token) {
+		try {
+			return Integer.parseInt(token);
+		} catch (NumberFormatException ignored) {
+			return null;
+		}
+	}
+}
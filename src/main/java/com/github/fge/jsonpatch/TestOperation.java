@@ -65,4 +65,26 @@ public final class TestOperation
                 "jsonPatch.valueTestFailure"));
         return node.deepCopy();
     }
+
+    @Override
+    public JsonNode applyInPlace(final JsonNode node)
+        throws JsonPatchException
+    {
+        return applyResolved(node, ResolvedPointer.of(path), null);
+    }
+
+    @Override
+    JsonNode applyResolved(final JsonNode node, final ResolvedPointer path,
+        final ResolvedPointer from)
+        throws JsonPatchException
+    {
+        final JsonNode tested = path.pointer.path(node);
+        if (tested.isMissingNode())
+            throw new JsonPatchException(BUNDLE.getMessage(
+                "jsonPatch.noSuchPath"));
+        if (!EQUIVALENCE.equivalent(tested, value))
+            throw new JsonPatchException(BUNDLE.getMessage(
+                "jsonPatch.valueTestFailure"));
+        return node;
+    }
 }
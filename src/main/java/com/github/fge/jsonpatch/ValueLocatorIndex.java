@@ -0,0 +1,343 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+
+package com.github.fge.jsonpatch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+import com.github.fge.jackson.jsonpointer.TokenResolver;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Ordering;
+
+/**
+ * Index of the elements of arrays by the values of some of their members
+ *
+ * <p>
+ * A {@code value_locator} designates the elements of an array whose members
+ * have given values. For each array and set of members looked up, this index
+ * maps the values of these members to the positions of the elements having
+ * them, so that an element is located without scanning the array.
+ * </p>
+ *
+ * <p>
+ * The index is meant to follow a single value while a patch modifies it in
+ * place: it must be told of every path an operation has written to or removed.
+ * Elements removed from, or appended to, an indexed array, and changes to the
+ * indexed members of an element, are accounted for without rebuilding the
+ * index. Positions are kept in a Fenwick tree over the slots of the elements,
+ * so that the removal of an element shifts the positions of all elements after
+ * it in logarithmic time. Any other change to an indexed array, or to the
+ * array itself or one of its ancestors, causes its index to be dropped and
+ * built again the next time it is looked up.
+ * </p>
+ */
+@NotThreadSafe
+final class ValueLocatorIndex {
+	private static final Ordering<String> ORDERING = Ordering.natural();
+
+	private final Map<JsonPointer, Map<List<String>, KeyedArray>> arrays = new HashMap<JsonPointer, Map<List<String>, KeyedArray>>();
+
+	/**
+	 * Find the elements of an array matching a value locator
+	 *
+	 * <p>
+	 * An element matches when, for each member of the locator, it has a member
+	 * with the same name and an equal value.
+	 * </p>
+	 *
+	 * @param pointer the pointer to the array
+	 * @param array the array
+	 * @param valueLocator the value locator; an object
+	 * @return the indices of the matching elements, in ascending order
+	 */
+	List<Integer> find(final JsonPointer pointer, final JsonNode array, final JsonNode valueLocator) {
+		final List<String> fields = ORDERING.sortedCopy(Lists.newArrayList(valueLocator.fieldNames()));
+		final List<JsonNode> key = new ArrayList<JsonNode>(fields.size());
+		for (final String field : fields)
+			key.add(valueLocator.get(field));
+
+		Map<List<String>, KeyedArray> byFields = arrays.get(pointer);
+		if (byFields == null) {
+			byFields = new HashMap<List<String>, KeyedArray>();
+			arrays.put(pointer, byFields);
+		}
+		KeyedArray keyed = byFields.get(fields);
+		if (keyed == null || !keyed.isCurrent(array)) {
+			keyed = new KeyedArray(pointer, fields, array);
+			byFields.put(fields, keyed);
+		}
+
+		List<Integer> ret = keyed.find(key);
+		if (ret == null) {
+			keyed = new KeyedArray(pointer, fields, array);
+			byFields.put(fields, keyed);
+			ret = keyed.find(key);
+		}
+		return ret;
+	}
+
+	/**
+	 * Account for a value written to by an operation
+	 *
+	 * @param path the path written to
+	 */
+	void written(final JsonPointer path) {
+		changed(path, false);
+	}
+
+	/**
+	 * Account for a value removed by an operation
+	 *
+	 * @param path the path of the removed value
+	 */
+	void removed(final JsonPointer path) {
+		changed(path, true);
+	}
+
+	/**
+	 * Forget all indexed arrays
+	 */
+	void clear() {
+		arrays.clear();
+	}
+
+	private void changed(final JsonPointer path, final boolean removal) {
+		if (arrays.isEmpty())
+			return;
+		final List<String> tokens = rawTokens(path);
+		final Iterator<Map<List<String>, KeyedArray>> byFields = arrays.values().iterator();
+		Iterator<KeyedArray> keyed;
+		KeyedArray array;
+		while (byFields.hasNext()) {
+			keyed = byFields.next().values().iterator();
+			while (keyed.hasNext()) {
+				array = keyed.next();
+				if (!array.changed(tokens, removal))
+					keyed.remove();
+			}
+		}
+	}
+
+	private static List<String> rawTokens(final JsonPointer pointer) {
+		final List<String> ret = Lists.newArrayList();
+		for (final TokenResolver<JsonNode> token : pointer)
+			ret.add(token.getToken().getRaw());
+		return ret;
+	}
+
+	/*
+	 * The index of one array for one set of members; elements occupy slots,
+	 * in their order in the array, and a Fenwick tree counts the slots of
+	 * elements still present so as to convert slots to positions and back
+	 */
+	private static final class KeyedArray {
+		private final JsonNode array;
+		private final List<String> tokens;
+		private final List<String> fields;
+		private final Map<List<JsonNode>, List<Integer>> slots = new HashMap<List<JsonNode>, List<Integer>>();
+		private final List<List<JsonNode>> keys;
+		private final int[] tree;
+		private int size;
+
+		private KeyedArray(final JsonPointer pointer, final List<String> fields, final JsonNode array) {
+			this.array = array;
+			tokens = rawTokens(pointer);
+			this.fields = fields;
+			size = array.size();
+			keys = new ArrayList<List<JsonNode>>(size);
+			tree = new int[size + Math.max(16, size / 2) + 1];
+			for (int slot = 0; slot < size; slot++) {
+				keys.add(null);
+				index(slot, array.get(slot));
+			}
+			int parent;
+			for (int i = 1; i < tree.length; i++) {
+				if (i <= size)
+					tree[i]++;
+				parent = i + (i & -i);
+				if (parent < tree.length)
+					tree[parent] += tree[i];
+			}
+		}
+
+		private boolean isCurrent(final JsonNode node) {
+			return node == array && node.size() == size;
+		}
+
+		/*
+		 * Return null if an element found does not match anymore, which means
+		 * the index is stale
+		 */
+		private List<Integer> find(final List<JsonNode> key) {
+			final List<Integer> found = slots.get(key);
+			if (found == null)
+				return Collections.emptyList();
+			final List<Integer> ret = new ArrayList<Integer>(found.size());
+			int position;
+			for (final int slot : found) {
+				position = prefix(slot) - 1;
+				if (!key.equals(keyOf(array.get(position))))
+					return null;
+				ret.add(position);
+			}
+			return ret;
+		}
+
+		/*
+		 * Return false if the index cannot be kept up to date
+		 */
+		private boolean changed(final List<String> path, final boolean removal) {
+			final int depth = tokens.size();
+			/*
+			 * The array itself was written to, removed or moved away, maybe
+			 * through one of its ancestors; it may come back later, modified
+			 * in ways this index was never told of
+			 */
+			if (path.size() <= depth)
+				return !tokens.subList(0, path.size()).equals(path);
+			if (!path.subList(0, depth).equals(tokens))
+				return true;
+			final String token = path.get(depth);
+			if (path.size() > depth + 1) {
+				if (array.size() != size)
+					return false;
+				if (fields.contains(path.get(depth + 1)))
+					return rekey(token);
+				return true;
+			}
+			if (removal) {
+				if (array.size() != size - 1)
+					return false;
+				final Integer position = position(token, size);
+				if (position == null)
+					return false;
+				final int slot = slotAt(position);
+				unindex(slot);
+				keys.set(slot, null);
+				update(slot, -1);
+				size--;
+				return true;
+			}
+			if (array.size() == size)
+				return "-".equals(token) || rekey(token);
+			if (array.size() != size + 1 || !"-".equals(token) || keys.size() + 1 >= tree.length)
+				return false;
+			final int slot = keys.size();
+			keys.add(null);
+			update(slot, 1);
+			size++;
+			index(slot, array.get(size - 1));
+			return true;
+		}
+
+		private boolean rekey(final String token) {
+			final Integer position = position(token, size);
+			if (position == null)
+				return false;
+			final int slot = slotAt(position);
+			unindex(slot);
+			index(slot, array.get(position));
+			return true;
+		}
+
+		private void index(final int slot, final JsonNode element) {
+			final List<JsonNode> key = keyOf(element);
+			keys.set(slot, key);
+			List<Integer> list = slots.get(key);
+			if (list == null) {
+				list = new ArrayList<Integer>(1);
+				slots.put(key, list);
+			}
+			final int insertion = Collections.binarySearch(list, slot);
+			if (insertion < 0)
+				list.add(-insertion - 1, slot);
+		}
+
+		private void unindex(final int slot) {
+			final List<Integer> list = slots.get(keys.get(slot));
+			list.remove(Integer.valueOf(slot));
+			if (list.isEmpty())
+				slots.remove(keys.get(slot));
+		}
+
+		/*
+		 * Containers are copied, since operations may modify them in place
+		 * while they are keys of the index
+		 */
+		private List<JsonNode> keyOf(final JsonNode element) {
+			final List<JsonNode> ret = new ArrayList<JsonNode>(fields.size());
+			JsonNode value;
+			for (final String field : fields) {
+				value = element.get(field);
+				ret.add(value != null && value.isContainerNode() ? value.deepCopy() : value);
+			}
+			return ret;
+		}
+
+		/*
+		 * Number of elements present in slots 0 to slot, inclusive
+		 */
+		private int prefix(final int slot) {
+			int ret = 0;
+			for (int i = slot + 1; i > 0; i -= i & -i)
+				ret += tree[i];
+			return ret;
+		}
+
+		private void update(final int slot, final int delta) {
+			for (int i = slot + 1; i < tree.length; i += i & -i)
+				tree[i] += delta;
+		}
+
+		/*
+		 * Slot of the element at a position, that is, the first slot such that
+		 * position + 1 elements are present up to it
+		 */
+		private int slotAt(final int position) {
+			int remaining = position + 1;
+			int ret = 0;
+			for (int step = Integer.highestOneBit(tree.length - 1); step > 0; step >>= 1) {
+				if (ret + step < tree.length && tree[ret + step] < remaining) {
+					ret += step;
+					remaining -= tree[ret];
+				}
+			}
+			return ret;
+		}
+
+		private static Integer position(final String token, final int size) {
+			try {
+				final int ret = Integer.parseInt(token);
+				return ret >= 0 && ret < size ? ret : null;
+			} catch (NumberFormatException ignored) {
+				return null;
+			}
+		}
+	}
+}
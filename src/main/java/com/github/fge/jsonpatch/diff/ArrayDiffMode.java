@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch.diff;
+
+/**
+ * How {@link JsonDiff} compares arrays
+ *
+ * @see JsonDiff#asJsonPatch(ArrayDiffMode, com.fasterxml.jackson.databind.JsonNode,
+ *      com.fasterxml.jackson.databind.JsonNode)
+ */
+public enum ArrayDiffMode {
+	/**
+	 * Elements are compared index by index; elements beyond the end of the
+	 * shortest array are removed or added
+	 *
+	 * <p>This is the default.</p>
+	 */
+	INDEX,
+	/**
+	 * Elements are aligned along a longest common subsequence of both arrays
+	 *
+	 * <p>
+	 * Elements not part of the subsequence are removed, added or, when a
+	 * removal and an addition happen at the same position, diffed against each
+	 * other. Inserting or removing a single element anywhere in an array
+	 * therefore yields a single operation.
+	 * </p>
+	 *
+	 * <p>
+	 * Within an array which differs, operations refer to indices in the array
+	 * as patched so far: they are never factored into moves or copies, and
+	 * values of the array are never used as sources for copies.
+	 * </p>
+	 */
+	LCS
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch.diff;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Primary key of the elements of an array
+ *
+ * <p>
+ * A key is either a single field, whose value must be textual, or a set of
+ * fields (a composite key), whose values may be of any type.
+ * </p>
+ */
+final class ArrayKey {
+	private final String field;
+	private final String[] fields;
+
+	private ArrayKey(final String field, final String[] fields) {
+		this.field = field;
+		this.fields = fields;
+	}
+
+	static ArrayKey single(final String field) {
+		return new ArrayKey(field, null);
+	}
+
+	/*
+	 * Field names are sorted so that values of a composite key are always
+	 * read in the same order
+	 */
+	static ArrayKey composite(final Collection<String> fields) {
+		final String[] names = fields.toArray(new String[fields.size()]);
+		Arrays.sort(names);
+		return new ArrayKey(null, names);
+	}
+
+	boolean isComposite() {
+		return fields != null;
+	}
+
+	/**
+	 * Return the key field of a single field key
+	 *
+	 * @return the field name
+	 */
+	String getField() {
+		return field;
+	}
+
+	/**
+	 * Return the sorted key fields of a composite key
+	 *
+	 * <p>The returned array must not be modified.</p>
+	 *
+	 * @return the field names
+	 */
+	String[] getFields() {
+		return fields;
+	}
+}
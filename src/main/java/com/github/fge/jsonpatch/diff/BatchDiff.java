@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch.diff;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jsonpatch.JsonDiffCancelledException;
+import com.github.fge.jsonpatch.JsonDiffException;
+import com.github.fge.jsonpatch.JsonPatchMessages;
+import com.github.fge.msgsimple.bundle.MessageBundle;
+import com.github.fge.msgsimple.load.MessageBundles;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+
+/**
+ * Custom diffs of many pairs of values, run by an {@link Executor}
+ *
+ * <p>
+ * Pairs are read from their {@link Iterable} as the batch goes, each one
+ * being diffed by a task handed to the executor. At most a fixed number of
+ * tasks are in flight at any time: once this number is reached, the batch
+ * waits for the oldest one to complete before reading the next pair. Patches
+ * are reported in the order of their pairs, whatever the order in which their
+ * tasks complete.
+ * </p>
+ *
+ * <p>
+ * A batch stops at the first diff which fails; diffs in flight at this time
+ * are cancelled, and the failure is thrown by the batch. The same batch can
+ * be run by several threads concurrently.
+ * </p>
+ *
+ * @see JsonDiff#batch(DiffConfig, Executor, int)
+ */
+@ThreadSafe
+public final class BatchDiff {
+	private static final MessageBundle BUNDLE = MessageBundles.getBundle(JsonPatchMessages.class);
+
+	private final DiffConfig config;
+	private final Executor executor;
+	private final int maxInFlight;
+
+	BatchDiff(final DiffConfig config, final Executor executor, final int maxInFlight) {
+		this.config = config;
+		this.executor = executor;
+		this.maxInFlight = maxInFlight;
+	}
+
+	/**
+	 * Diff pairs of values, as a list of {@link JsonNode} patches
+	 *
+	 * @param pairs the pairs of old and new json
+	 * @return the patches, in the order of their pairs
+	 * @throws JsonDiffException a diff failed
+	 */
+	public List<JsonNode> asJson(final Iterable<? extends Map.Entry<? extends JsonNode, ? extends JsonNode>> pairs)
+			throws JsonDiffException {
+		final List<JsonNode> ret = Lists.newArrayList();
+
+		try {
+			diff(pairs, new BatchDiffCallback() {
+				@Override
+				public void patch(final long index, final JsonNode patch) {
+					ret.add(patch);
+				}
+			});
+		} catch (IOException e) {
+			throw new JsonDiffException(BUNDLE.getMessage("jsonDiff.generic"), e);
+		}
+		return ret;
+	}
+
+	/**
+	 * Diff pairs of values, reporting their {@link JsonNode} patches to a
+	 * callback
+	 *
+	 * @param pairs the pairs of old and new json
+	 * @param callback the callback to report patches to
+	 * @throws JsonDiffException a diff failed, or the batch was interrupted
+	 *         (see {@link JsonDiffCancelledException})
+	 * @throws IOException the callback failed
+	 */
+	public void diff(final Iterable<? extends Map.Entry<? extends JsonNode, ? extends JsonNode>> pairs,
+			final BatchDiffCallback callback) throws JsonDiffException, IOException {
+		BUNDLE.checkNotNull(pairs, "common.nullArgument");
+		BUNDLE.checkNotNull(callback, "common.nullArgument");
+
+		// Cancelled when the batch stops early, so that diffs in flight stop too
+		final CancellationToken token = CancellationToken.newToken();
+		final Deque<FutureTask<JsonNode>> pending = new ArrayDeque<FutureTask<JsonNode>>();
+		final Iterator<? extends Map.Entry<? extends JsonNode, ? extends JsonNode>> iterator = pairs.iterator();
+		Map.Entry<? extends JsonNode, ? extends JsonNode> pair;
+		long index = 0L;
+
+		try {
+			while (iterator.hasNext()) {
+				if (pending.size() == maxInFlight)
+					callback.patch(index - maxInFlight, await(pending.removeFirst()));
+				pair = iterator.next();
+				final JsonNode source = BUNDLE.checkNotNull(pair.getKey(), "common.nullArgument");
+				final JsonNode target = BUNDLE.checkNotNull(pair.getValue(), "common.nullArgument");
+				final FutureTask<JsonNode> task = new FutureTask<JsonNode>(new Callable<JsonNode>() {
+					@Override
+					public JsonNode call() throws JsonDiffException {
+						return JsonDiff.asJson(config, source, target, token);
+					}
+				});
+				pending.addLast(task);
+				executor.execute(task);
+				index++;
+			}
+			while (!pending.isEmpty())
+				callback.patch(index - pending.size(), await(pending.removeFirst()));
+		} finally {
+			if (!pending.isEmpty()) {
+				token.cancel();
+				for (final FutureTask<JsonNode> task : pending)
+					task.cancel(false);
+			}
+		}
+	}
+
+	private static JsonNode await(final FutureTask<JsonNode> task) throws JsonDiffException {
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new JsonDiffCancelledException(BUNDLE.getMessage("jsonDiff.cancelled"));
+		} catch (ExecutionException e) {
+			Throwables.propagateIfInstanceOf(e.getCause(), JsonDiffException.class);
+			throw Throwables.propagate(e.getCause());
+		}
+	}
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch.diff;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Receiver of the patches of a batch of diffs, in batch order
+ *
+ * <p>
+ * Patches are reported one at a time, from the thread running the batch, in
+ * the order of the pairs they were computed from.
+ * </p>
+ *
+ * @see BatchDiff#diff(Iterable, BatchDiffCallback)
+ */
+public interface BatchDiffCallback {
+	/**
+	 * The patch of a pair of values
+	 *
+	 * @param index the index of the pair in the batch, starting at 0
+	 * @param patch the patch
+	 * @throws IOException the patch could not be handled
+	 */
+	void patch(long index, JsonNode patch) throws IOException;
+}
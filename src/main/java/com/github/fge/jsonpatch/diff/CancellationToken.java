@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch.diff;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.github.fge.jsonpatch.JsonDiffCancelledException;
+import com.github.fge.jsonpatch.JsonPatchMessages;
+import com.github.fge.msgsimple.bundle.MessageBundle;
+import com.github.fge.msgsimple.load.MessageBundles;
+
+/**
+ * A way to stop a custom diff before it completes
+ *
+ * <p>
+ * A diff given a token checks it as it walks down the diffed values, and
+ * fails with a {@link JsonDiffCancelledException} as soon as the token is
+ * cancelled or its deadline, if any, has passed. Operations already reported
+ * to a {@link DiffSink} by then stay reported.
+ * </p>
+ *
+ * <p>
+ * Tokens can be cancelled from any thread, and a single token can be shared
+ * by several diffs in order to stop all of them at once.
+ * </p>
+ *
+ * @see JsonDiff#asJsonPatch(DiffConfig, com.fasterxml.jackson.databind.JsonNode,
+ *      com.fasterxml.jackson.databind.JsonNode, CancellationToken)
+ */
+@ThreadSafe
+public final class CancellationToken {
+	private static final MessageBundle BUNDLE = MessageBundles.getBundle(JsonPatchMessages.class);
+
+	/*
+	 * The token of diffs which cannot be cancelled; it is never handed out,
+	 * so nobody can cancel it
+	 */
+	static final CancellationToken NONE = newToken();
+
+	private final boolean timed;
+	private final long deadline;
+	private volatile boolean cancelled;
+
+	private CancellationToken(final boolean timed, final long deadline) {
+		this.timed = timed;
+		this.deadline = deadline;
+	}
+
+	/**
+	 * Return a new token with no deadline
+	 *
+	 * @return a token, which is only cancelled by {@link #cancel()}
+	 */
+	public static CancellationToken newToken() {
+		return new CancellationToken(false, 0L);
+	}
+
+	/**
+	 * Return a new token with a deadline
+	 *
+	 * @param timeout the time from now after which diffs are cancelled
+	 * @param unit the unit of the timeout
+	 * @return a token
+	 */
+	public static CancellationToken withTimeout(final long timeout, final TimeUnit unit) {
+		BUNDLE.checkNotNull(unit, "common.nullArgument");
+		return new CancellationToken(true, System.nanoTime() + unit.toNanos(timeout));
+	}
+
+	/**
+	 * Cancel all diffs using this token
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * Tell whether this token is cancelled, or its deadline has passed
+	 *
+	 * @return true if diffs using this token should stop
+	 */
+	public boolean isCancelled() {
+		if (cancelled)
+			return true;
+		return timed && System.nanoTime() - deadline >= 0;
+	}
+
+	/**
+	 * Fail if this token is cancelled
+	 *
+	 * @throws JsonDiffCancelledException this token is cancelled
+	 */
+	void check() throws JsonDiffCancelledException {
+		if (isCancelled())
+			throw new JsonDiffCancelledException(BUNDLE.getMessage("jsonDiff.cancelled"));
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch.diff;
+
+import java.util.Arrays;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Values of the primary key fields of one array element
+ *
+ * <p>
+ * Values are stored positionally, in the order of the field names array the
+ * key was built with; keys are only ever compared with keys built from the
+ * same field names. Textual values are unwrapped to their {@link String}.
+ * </p>
+ *
+ * <p>
+ * The hash is the one a {@code Map<String, JsonNode>} of field names to
+ * values would have, so that hash based collections of keys iterate in the
+ * same order they did when such maps were used as keys; diff operations are
+ * emitted in that order.
+ * </p>
+ */
+final class CompositeKey {
+	private final Object[] values;
+	private final int hash;
+
+	private CompositeKey(final Object[] values, final int hash) {
+		this.values = values;
+		this.hash = hash;
+	}
+
+	/**
+	 * Read the key of an array element
+	 *
+	 * @param fields the primary key field names
+	 * @param element the array element
+	 * @return the key, or null if one of the fields is missing
+	 */
+	static CompositeKey of(final String[] fields, final JsonNode element) {
+		final Object[] values = new Object[fields.length];
+		int hash = 0;
+		JsonNode value;
+		for (int i = 0; i < fields.length; i++) {
+			value = element.get(fields[i]);
+			if (value == null)
+				return null;
+			values[i] = value.isTextual() ? value.textValue() : value;
+			hash += fields[i].hashCode() ^ value.hashCode();
+		}
+		return new CompositeKey(values, hash);
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof CompositeKey))
+			return false;
+		final CompositeKey other = (CompositeKey) obj;
+		return hash == other.hash && Arrays.equals(values, other.values);
+	}
+}
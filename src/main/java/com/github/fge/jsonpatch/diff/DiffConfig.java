@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch.diff;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.annotation.concurrent.Immutable;
+
+import com.github.fge.Frozen;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+import com.github.fge.jsonpatch.JsonDiffException;
+import com.github.fge.jsonpatch.JsonPatchMessages;
+import com.github.fge.msgsimple.bundle.MessageBundle;
+import com.github.fge.msgsimple.load.MessageBundles;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Configuration of a custom JSON diff
+ *
+ * <p>
+ * A configuration tells, for arrays at given {@link JsonPointer pointers},
+ * which field or fields of their elements are their primary key; arrays
+ * without a key are compared as multisets of values. It can also tell which
+ * object members should not be diffed at all, or which ones should be diffed
+ * exclusively: when at least one pointer is included, only the values at,
+ * within or on the way to included pointers are diffed.
+ * </p>
+ *
+ * <p>
+ * Ignored and excluded values are pruned before anything is compared: they
+ * are neither hashed nor compared, including within the elements of arrays,
+ * with or without a key.
+ * </p>
+ *
+ * <p>
+ * Pointers given to a configuration may contain wildcards: a {@code *}
+ * reference token matches any single reference token, be it an object member
+ * name or an array index. For instance, {@code /Tenants/*}{@code /Roles}
+ * matches the {@code Roles} member of all members of {@code Tenants}. When
+ * several pointers match, the one with an exact token at the rightmost
+ * position where they differ wins.
+ * </p>
+ *
+ * <p>
+ * Custom diffs can optionally run in parallel, on a given {@link ForkJoinPool}:
+ * when an object, or an array with a key, holds enough nodes, its members or
+ * elements are diffed in separate tasks. The result is the same as with a
+ * sequential diff.
+ * </p>
+ *
+ * <p>
+ * By default, removals and additions of the same value are factored into
+ * moves, and additions of values which exist unchanged in both the source and
+ * the target are turned into copies. This requires all differences to be
+ * known before the first operation can be reported; without factoring,
+ * operations can be streamed to a {@link DiffSink} as they are found.
+ * </p>
+ *
+ * <p>
+ * Finally, the size of patches can be bounded: when operations found within
+ * an object or an array would cost more than a given ratio of the cost of
+ * replacing it whole, a single replacement is reported instead. The cost of
+ * an operation is one plus the number of JSON nodes in the values it carries.
+ * </p>
+ *
+ * <p>
+ * Elements of keyed arrays which share a key are compared member by member.
+ * Members which are containers on both sides are diffed if pointers within
+ * them have settings, such as a key for {@code /Accounts/*}{@code /Roles}, or
+ * if deep element diffs are enabled; other differing members are replaced
+ * whole.
+ * </p>
+ *
+ * <p>
+ * Configurations are immutable, and can therefore be built once and shared
+ * between any number of diffs, including concurrent ones. Use
+ * {@link #newBuilder()} to build one.
+ * </p>
+ *
+ * @see JsonDiff#asJsonPatch(DiffConfig, com.fasterxml.jackson.databind.JsonNode,
+ *      com.fasterxml.jackson.databind.JsonNode)
+ */
+@Immutable
+public final class DiffConfig implements Frozen<DiffConfigBuilder> {
+	private static final MessageBundle BUNDLE = MessageBundles.getBundle(JsonPatchMessages.class);
+
+	private static final DiffConfig DEFAULT = new DiffConfigBuilder().freeze();
+
+	final Map<JsonPointer, ArrayKey> arrayKeys;
+	final Set<JsonPointer> ignoredPointers;
+	final Set<JsonPointer> includedPointers;
+	final ForkJoinPool pool;
+	final int forkThreshold;
+	final boolean factoring;
+	final double replaceRatio;
+	final boolean deepElements;
+	private final PointerTrie trie;
+
+	DiffConfig(final DiffConfigBuilder builder) {
+		arrayKeys = ImmutableMap.copyOf(builder.arrayKeys);
+		ignoredPointers = ImmutableSet.copyOf(builder.ignoredPointers);
+		includedPointers = ImmutableSet.copyOf(builder.includedPointers);
+		pool = builder.pool;
+		forkThreshold = builder.forkThreshold;
+		factoring = builder.factoring;
+		replaceRatio = builder.replaceRatio;
+		deepElements = builder.deepElements;
+		trie = PointerTrie.compile(arrayKeys, ignoredPointers, includedPointers);
+	}
+
+	/**
+	 * Return a configuration with no keyed arrays and no ignored members
+	 *
+	 * @return the default configuration
+	 */
+	public static DiffConfig byDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * Return a new, empty, builder
+	 *
+	 * @return a builder
+	 */
+	public static DiffConfigBuilder newBuilder() {
+		return new DiffConfigBuilder();
+	}
+
+	/**
+	 * Build a configuration from a map of array key fields
+	 *
+	 * <p>
+	 * This is the format accepted by
+	 * {@link JsonDiff#asJsonPatch(com.fasterxml.jackson.databind.JsonNode,
+	 * com.fasterxml.jackson.databind.JsonNode, Map)}: values of the map are
+	 * either a field name, a set of field names for a composite key, or null
+	 * for an array with no key.
+	 * </p>
+	 *
+	 * @param attributesKeyFields the map, may be null
+	 * @return the configuration
+	 * @throws JsonDiffException a value is neither null, a string nor a set
+	 */
+	public static DiffConfig fromKeyFields(final Map<JsonPointer, ?> attributesKeyFields)
+			throws JsonDiffException {
+		if (attributesKeyFields == null || attributesKeyFields.isEmpty())
+			return DEFAULT;
+
+		final DiffConfigBuilder builder = new DiffConfigBuilder();
+		Object keyFields;
+		for (final Map.Entry<JsonPointer, ?> entry : attributesKeyFields.entrySet()) {
+			keyFields = entry.getValue();
+			if (keyFields == null)
+				continue;
+			if (keyFields instanceof String) {
+				builder.setArrayKey(entry.getKey(), (String) keyFields);
+			} else if (keyFields instanceof Set) {
+				if (((Set<?>) keyFields).isEmpty())
+					continue;
+				for (final Object field : (Set<?>) keyFields)
+					if (!(field instanceof String))
+						throw new JsonDiffException(BUNDLE.getMessage("jsonDiff.badKeyFields"));
+				@SuppressWarnings("unchecked")
+				final Collection<String> fields = (Collection<String>) keyFields;
+				builder.setCompositeArrayKey(entry.getKey(), fields);
+			} else {
+				throw new JsonDiffException(BUNDLE.getMessage("jsonDiff.badKeyFields"));
+			}
+		}
+		return builder.freeze();
+	}
+
+	/**
+	 * Return the settings of the root of diffed documents
+	 *
+	 * @return the root node of the compiled settings
+	 */
+	PointerTrie getTrie() {
+		return trie;
+	}
+
+	@Override
+	public DiffConfigBuilder thaw() {
+		return new DiffConfigBuilder(this);
+	}
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch.diff;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.github.fge.Thawed;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+import com.github.fge.jsonpatch.JsonPatchMessages;
+import com.github.fge.msgsimple.bundle.MessageBundle;
+import com.github.fge.msgsimple.load.MessageBundles;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * Builder for a {@link DiffConfig}
+ *
+ * <p>Obtain an instance using {@link DiffConfig#newBuilder()}, or by thawing
+ * an existing configuration.</p>
+ *
+ * <p>All pointers may contain wildcard ({@code *}) reference tokens; see
+ * {@link DiffConfig}.</p>
+ */
+@NotThreadSafe
+public final class DiffConfigBuilder implements Thawed<DiffConfig> {
+	private static final MessageBundle BUNDLE = MessageBundles.getBundle(JsonPatchMessages.class);
+
+	final Map<JsonPointer, ArrayKey> arrayKeys;
+	final Set<JsonPointer> ignoredPointers;
+	final Set<JsonPointer> includedPointers;
+	ForkJoinPool pool;
+	int forkThreshold;
+	boolean factoring = true;
+	double replaceRatio;
+	boolean deepElements;
+
+	DiffConfigBuilder() {
+		arrayKeys = Maps.newHashMap();
+		ignoredPointers = Sets.newHashSet();
+		includedPointers = Sets.newHashSet();
+	}
+
+	DiffConfigBuilder(final DiffConfig config) {
+		arrayKeys = Maps.newHashMap(config.arrayKeys);
+		ignoredPointers = Sets.newHashSet(config.ignoredPointers);
+		includedPointers = Sets.newHashSet(config.includedPointers);
+		pool = config.pool;
+		forkThreshold = config.forkThreshold;
+		factoring = config.factoring;
+		replaceRatio = config.replaceRatio;
+		deepElements = config.deepElements;
+	}
+
+	/**
+	 * Set the key field of the elements of an array
+	 *
+	 * <p>The value of this field must be textual in all elements.</p>
+	 *
+	 * @param pointer the pointer to the array
+	 * @param field the key field
+	 * @return this
+	 */
+	public DiffConfigBuilder setArrayKey(final JsonPointer pointer, final String field) {
+		BUNDLE.checkNotNull(pointer, "common.nullArgument");
+		BUNDLE.checkNotNull(field, "common.nullArgument");
+		arrayKeys.put(pointer, ArrayKey.single(field));
+		return this;
+	}
+
+	/**
+	 * Set the key fields of the elements of an array
+	 *
+	 * <p>Elements are matched when the values of all of these fields are
+	 * equal.</p>
+	 *
+	 * @param pointer the pointer to the array
+	 * @param fields the key fields
+	 * @return this
+	 * @throws IllegalArgumentException no fields were given
+	 */
+	public DiffConfigBuilder setCompositeArrayKey(final JsonPointer pointer, final Collection<String> fields) {
+		BUNDLE.checkNotNull(pointer, "common.nullArgument");
+		BUNDLE.checkNotNull(fields, "common.nullArgument");
+		BUNDLE.checkArgument(!fields.isEmpty(), "jsonDiff.noKeyFields");
+		for (final String field : fields)
+			BUNDLE.checkNotNull(field, "common.nullArgument");
+		arrayKeys.put(pointer, ArrayKey.composite(fields));
+		return this;
+	}
+
+	/**
+	 * Remove the key of an array, if any
+	 *
+	 * <p>The array will then be compared as a multiset of values.</p>
+	 *
+	 * @param pointer the pointer to the array
+	 * @return this
+	 */
+	public DiffConfigBuilder removeArrayKey(final JsonPointer pointer) {
+		BUNDLE.checkNotNull(pointer, "common.nullArgument");
+		arrayKeys.remove(pointer);
+		return this;
+	}
+
+	/**
+	 * Ignore an object member
+	 *
+	 * <p>The value at this pointer is neither compared, added nor removed.</p>
+	 *
+	 * @param pointer the pointer to the member
+	 * @return this
+	 */
+	public DiffConfigBuilder addIgnoredPointer(final JsonPointer pointer) {
+		BUNDLE.checkNotNull(pointer, "common.nullArgument");
+		ignoredPointers.add(pointer);
+		return this;
+	}
+
+	/**
+	 * Include a value
+	 *
+	 * <p>Once at least one pointer is included, values which are neither at,
+	 * within nor on the way to an included pointer are ignored. Ignored
+	 * pointers still apply within included values.</p>
+	 *
+	 * @param pointer the pointer to the value
+	 * @return this
+	 */
+	public DiffConfigBuilder addIncludedPointer(final JsonPointer pointer) {
+		BUNDLE.checkNotNull(pointer, "common.nullArgument");
+		includedPointers.add(pointer);
+		return this;
+	}
+
+	/**
+	 * Diff in parallel
+	 *
+	 * <p>Objects, and arrays with a key, are split into separate tasks when
+	 * the source and target values hold together at least {@code threshold}
+	 * nodes; each task then has at least this many nodes to diff, if
+	 * possible.</p>
+	 *
+	 * @param pool the pool to run tasks on
+	 * @param threshold the minimal number of nodes to split a diff
+	 * @return this
+	 * @throws IllegalArgumentException threshold is not strictly positive
+	 */
+	public DiffConfigBuilder setParallelism(final ForkJoinPool pool, final int threshold) {
+		BUNDLE.checkNotNull(pool, "common.nullArgument");
+		BUNDLE.checkArgument(threshold > 0, "jsonDiff.badForkThreshold");
+		this.pool = pool;
+		forkThreshold = threshold;
+		return this;
+	}
+
+	/**
+	 * Diff sequentially; this is the default
+	 *
+	 * @return this
+	 */
+	public DiffConfigBuilder clearParallelism() {
+		pool = null;
+		forkThreshold = 0;
+		return this;
+	}
+
+	/**
+	 * Tell whether to factor operations into moves and copies
+	 *
+	 * <p>This is enabled by default. When disabled, a diff reports its
+	 * operations to a {@link DiffSink} as soon as they are found, and keeps
+	 * nothing in memory.</p>
+	 *
+	 * @param factoring true to factor moves and copies
+	 * @return this
+	 */
+	public DiffConfigBuilder setFactoring(final boolean factoring) {
+		this.factoring = factoring;
+		return this;
+	}
+
+	/**
+	 * Replace containers whole when diffing them is too expensive
+	 *
+	 * <p>When operations found within an object or an array cost more than
+	 * {@code ratio} times the cost of replacing it, the container is replaced
+	 * instead; see {@link DiffConfig}. For instance, with a ratio of 1, a patch
+	 * is never larger than the target value.</p>
+	 *
+	 * @param ratio the maximal ratio of the cost of operations within a
+	 *        container to the cost of replacing it
+	 * @return this
+	 * @throws IllegalArgumentException ratio is not strictly positive
+	 */
+	public DiffConfigBuilder setReplaceRatio(final double ratio) {
+		BUNDLE.checkArgument(ratio > 0, "jsonDiff.badReplaceRatio");
+		replaceRatio = ratio;
+		return this;
+	}
+
+	/**
+	 * Always diff containers, whatever the cost; this is the default
+	 *
+	 * @return this
+	 */
+	public DiffConfigBuilder clearReplaceRatio() {
+		replaceRatio = 0;
+		return this;
+	}
+
+	/**
+	 * Tell whether to diff within the members of matched keyed elements
+	 *
+	 * <p>This is disabled by default: a member of an element of a keyed array
+	 * which differs from the member of the element with the same key is
+	 * replaced whole, unless pointers within the member have settings. When
+	 * enabled, all members which are objects or arrays in both elements are
+	 * diffed instead, as any other value, using the settings of the pointers
+	 * within them.</p>
+	 *
+	 * @param deepElements true to diff within members of keyed elements
+	 * @return this
+	 */
+	public DiffConfigBuilder setDeepElementDiff(final boolean deepElements) {
+		this.deepElements = deepElements;
+		return this;
+	}
+
+	@Override
+	public DiffConfig freeze() {
+		return new DiffConfig(this);
+	}
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch.diff;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinTask;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.github.fge.jsonpatch.JsonDiffCancelledException;
+import com.github.fge.jsonpatch.JsonDiffException;
+import com.google.common.collect.Sets;
+
+/**
+ * Settings of one custom diff which do not depend on the diffed location
+ */
+final class DiffContext {
+	private final int forkThreshold;
+	private final double replaceRatio;
+	private final boolean deepElements;
+	private final CancellationToken token;
+	private final PreparedSource prepared;
+
+	DiffContext(final DiffConfig config, final CancellationToken token, final PreparedSource prepared) {
+		this(config.pool == null ? Integer.MAX_VALUE : config.forkThreshold, config.replaceRatio,
+				config.deepElements, token, prepared);
+	}
+
+	private DiffContext(final int forkThreshold, final double replaceRatio, final boolean deepElements,
+			final CancellationToken token, final PreparedSource prepared) {
+		this.forkThreshold = forkThreshold;
+		this.replaceRatio = replaceRatio;
+		this.deepElements = deepElements;
+		this.token = token;
+		this.prepared = prepared;
+	}
+
+	/**
+	 * Return the context of a diff which stops at its first difference
+	 *
+	 * <p>Such a diff is never split into parallel tasks, and never holds
+	 * operations back to weigh them against replacing their container.</p>
+	 *
+	 * @param config the diff configuration
+	 * @param prepared the prepared source of the diff, or null
+	 * @return the context
+	 */
+	static DiffContext firstDifference(final DiffConfig config, final PreparedSource prepared) {
+		return new DiffContext(Integer.MAX_VALUE, 0, config.deepElements, CancellationToken.NONE, prepared);
+	}
+
+	/**
+	 * Tell whether members of matched keyed elements are diffed, rather than
+	 * replaced whole
+	 *
+	 * @return true if members of keyed elements are diffed
+	 */
+	boolean isDeepElementDiff() {
+		return deepElements;
+	}
+
+	/**
+	 * Return the member names of an object, in ascending order
+	 *
+	 * @param node the object
+	 * @return the names
+	 */
+	Set<String> fieldNames(final JsonNode node) {
+		if (prepared != null) {
+			final Set<String> ret = prepared.getFieldNames(node);
+			if (ret != null)
+				return ret;
+		}
+		return Sets.newTreeSet(Sets.newHashSet(node.fieldNames()));
+	}
+
+	/**
+	 * Return the indices of the elements of an array, by composite key
+	 *
+	 * @param node the array
+	 * @param keyFields the sorted key fields
+	 * @return the indices
+	 * @throws JsonDiffException an element lacks a key field
+	 */
+	Map<CompositeKey, Integer> keyIndex(final ArrayNode node, final String[] keyFields) throws JsonDiffException {
+		if (prepared != null) {
+			final Map<CompositeKey, Integer> ret = prepared.getKeyIndex(node, keyFields);
+			if (ret != null)
+				return ret;
+		}
+		return JsonDiff.generateMapOfKeysValues(node, keyFields);
+	}
+
+	/**
+	 * Fail if the diff is cancelled
+	 *
+	 * @throws JsonDiffCancelledException the diff is cancelled
+	 */
+	void checkCancelled() throws JsonDiffCancelledException {
+		token.check();
+	}
+
+	/**
+	 * Tell whether diffing two values should be split into parallel tasks
+	 *
+	 * <p>This is the case when both values hold together at least as many
+	 * nodes as the threshold, not counting ignored nodes; nodes are only
+	 * counted in parallel diffs.</p>
+	 *
+	 * @param fingerprints the fingerprints of the values
+	 * @param settings the diff settings at the values
+	 * @param source the source value
+	 * @param target the target value
+	 * @return true if the diff should be split
+	 */
+	boolean shouldFork(final NodeFingerprints fingerprints, final PointerTrie settings, final JsonNode source,
+			final JsonNode target) {
+		if (forkThreshold == Integer.MAX_VALUE || !ForkJoinTask.inForkJoinPool())
+			return false;
+		return fingerprints.size(source, settings) + fingerprints.size(target, settings) >= forkThreshold;
+	}
+
+	/**
+	 * Return the minimal number of nodes a parallel task should diff
+	 *
+	 * @return the number of nodes
+	 */
+	int getForkThreshold() {
+		return forkThreshold;
+	}
+
+	/**
+	 * Tell whether containers may be replaced whole instead of being diffed
+	 *
+	 * @return true if the cost of operations within containers is bounded
+	 */
+	boolean isCostBounded() {
+		return replaceRatio > 0;
+	}
+
+	/**
+	 * Tell whether operations within a container cost more than replacing it
+	 * whole is allowed to
+	 *
+	 * @param cost the cost of the operations, as computed by {@link
+	 *        DiffEventLog#getCost()}
+	 * @param targetSize the number of nodes in the target container
+	 * @return true if the container should be replaced whole
+	 */
+	boolean exceedsBudget(final long cost, final int targetSize) {
+		return cost > replaceRatio * (1 + targetSize);
+	}
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch.diff;
+
+import java.util.List;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+import com.google.common.collect.Lists;
+
+/**
+ * A {@link DiffHandler} which records what it is reported, to replay it later
+ *
+ * <p>
+ * Logs are used to diff parts of two values independently, for instance in
+ * different threads, and to then report the results in the order a
+ * sequential walk would have reported them. A log can contain other logs;
+ * they are replayed in place.
+ * </p>
+ *
+ * <p>
+ * A log also keeps the cost of the operations it records, as the number of
+ * operations plus the number of nodes in the values these operations carry.
+ * </p>
+ */
+final class DiffEventLog extends DiffHandler {
+	private enum Kind {
+		UNCHANGED, REPLACED, REMOVED, ADDED, ARRAY_OBJECT_REPLACED, ARRAY_OBJECT_REMOVED, LOG
+	}
+
+	private static final class Event {
+		private final Kind kind;
+		private final JsonPointer pointer;
+		private final JsonNode first;
+		private final JsonNode second;
+		private final DiffEventLog log;
+
+		private Event(final Kind kind, final JsonPointer pointer, final JsonNode first, final JsonNode second,
+				final DiffEventLog log) {
+			this.kind = kind;
+			this.pointer = pointer;
+			this.first = first;
+			this.second = second;
+			this.log = log;
+		}
+	}
+
+	private final List<Event> events = Lists.newArrayList();
+	private long cost;
+
+	DiffEventLog(final NodeFingerprints fingerprints) {
+		super(fingerprints);
+	}
+
+	@Override
+	void valueUnchanged(final JsonPointer pointer, final JsonNode value) {
+		record(Kind.UNCHANGED, pointer, value, null);
+	}
+
+	@Override
+	void valueReplaced(final JsonPointer pointer, final JsonNode oldValue, final JsonNode newValue) {
+		record(Kind.REPLACED, pointer, oldValue, newValue);
+		cost += 1 + size(newValue);
+	}
+
+	@Override
+	void valueRemoved(final JsonPointer pointer, final JsonNode value) {
+		record(Kind.REMOVED, pointer, value, null);
+		cost++;
+	}
+
+	@Override
+	void valueAdded(final JsonPointer pointer, final JsonNode value) {
+		record(Kind.ADDED, pointer, value, null);
+		cost += 1 + size(value);
+	}
+
+	@Override
+	void arrayObjectValueReplaced(final JsonPointer pointer, final JsonNode oldValue, final JsonNode newValue) {
+		record(Kind.ARRAY_OBJECT_REPLACED, pointer, oldValue, newValue);
+		cost += 1 + size(oldValue) + size(newValue);
+	}
+
+	@Override
+	void arrayObjectValueRemoved(final JsonPointer pointer, final JsonNode value) {
+		record(Kind.ARRAY_OBJECT_REMOVED, pointer, value, null);
+		cost += 1 + size(value);
+	}
+
+	/**
+	 * Return the cost of the operations recorded by this log
+	 *
+	 * @return the cost
+	 */
+	long getCost() {
+		return cost;
+	}
+
+	/**
+	 * Report everything recorded by this log to another handler
+	 *
+	 * <p>If the other handler is a log itself, this log is only appended to
+	 * it.</p>
+	 *
+	 * @param handler the handler
+	 */
+	void replay(final DiffHandler handler) {
+		if (handler instanceof DiffEventLog) {
+			final DiffEventLog log = (DiffEventLog) handler;
+			log.events.add(new Event(Kind.LOG, null, null, null, this));
+			log.cost += cost;
+			return;
+		}
+		for (final Event event : events) {
+			switch (event.kind) {
+			case UNCHANGED:
+				handler.valueUnchanged(event.pointer, event.first);
+				break;
+			case REPLACED:
+				handler.valueReplaced(event.pointer, event.first, event.second);
+				break;
+			case REMOVED:
+				handler.valueRemoved(event.pointer, event.first);
+				break;
+			case ADDED:
+				handler.valueAdded(event.pointer, event.first);
+				break;
+			case ARRAY_OBJECT_REPLACED:
+				handler.arrayObjectValueReplaced(event.pointer, event.first, event.second);
+				break;
+			case ARRAY_OBJECT_REMOVED:
+				handler.arrayObjectValueRemoved(event.pointer, event.first);
+				break;
+			case LOG:
+				event.log.replay(handler);
+				break;
+			default:
+				throw new IllegalStateException("unknown event kind " + event.kind);
+			}
+		}
+	}
+
+	/**
+	 * Report only the unchanged values recorded by this log to another handler
+	 *
+	 * @param handler the handler
+	 */
+	void replayUnchanged(final DiffHandler handler) {
+		for (final Event event : events)
+			if (event.kind == Kind.UNCHANGED)
+				handler.valueUnchanged(event.pointer, event.first);
+			else if (event.kind == Kind.LOG)
+				event.log.replayUnchanged(handler);
+	}
+
+	/*
+	 * A missing value is written as a JSON null
+	 */
+	private int size(final JsonNode node) {
+		return node == null ? 1 : getFingerprints().size(node);
+	}
+
+	private void record(final Kind kind, final JsonPointer pointer, final JsonNode first, final JsonNode second) {
+		events.add(new Event(kind, pointer, first, second, null));
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch.diff;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+
+/**
+ * Receiver of the differences found while walking two JSON values
+ *
+ * <p>
+ * The diff walk reports what it finds, in order, to an instance of this
+ * class: values which are unchanged, and values which are removed, added or
+ * replaced.
+ * </p>
+ */
+abstract class DiffHandler {
+	private final NodeFingerprints fingerprints;
+
+	DiffHandler(final NodeFingerprints fingerprints) {
+		this.fingerprints = fingerprints;
+	}
+
+	/**
+	 * Return the fingerprints of the values being diffed
+	 *
+	 * @return the fingerprints
+	 */
+	final NodeFingerprints getFingerprints() {
+		return fingerprints;
+	}
+
+	/**
+	 * Report a value which is the same in both the source and the target
+	 *
+	 * @param pointer the pointer to the value
+	 * @param value the value
+	 */
+	abstract void valueUnchanged(JsonPointer pointer, JsonNode value);
+
+	abstract void valueReplaced(JsonPointer pointer, JsonNode oldValue, JsonNode newValue);
+
+	abstract void valueRemoved(JsonPointer pointer, JsonNode value);
+
+	abstract void valueAdded(JsonPointer pointer, JsonNode value);
+
+	/**
+	 * Report the replacement of an attribute of an object within an array
+	 *
+	 * @param pointer the pointer to the attribute
+	 * @param oldValue the whole object in the source
+	 * @param newValue the new value of the attribute
+	 */
+	abstract void arrayObjectValueReplaced(JsonPointer pointer, JsonNode oldValue, JsonNode newValue);
+
+	/**
+	 * Report the removal of a complete object from an array
+	 *
+	 * @param pointer the pointer to the object
+	 * @param value the object
+	 */
+	abstract void arrayObjectValueRemoved(JsonPointer pointer, JsonNode value);
+}
@@ -31,6 +31,8 @@ import com.github.fge.jsonpatch.MoveOperation;
 import com.github.fge.jsonpatch.RemoveOperation;
 import com.github.fge.jsonpatch.ReplaceOperation;
 
+import java.io.IOException;
+
 public final class DiffOperation {
 	private final Type type;
 	/* An op's "from", if any */
@@ -102,50 +104,91 @@ public final class DiffOperation {
 		return type.toOperation(this);
 	}
 
+	void emit(final DiffSink sink) throws IOException {
+		type.emit(this, sink);
+	}
+
 	enum Type {
 		ADD {
 			@Override
 			JsonPatchOperation toOperation(final DiffOperation op) {
 				return new AddOperation(op.path, op.value);
 			}
+
+			@Override
+			void emit(final DiffOperation op, final DiffSink sink) throws IOException {
+				sink.add(op.path, op.value);
+			}
 		},
 		COPY {
 			@Override
 			JsonPatchOperation toOperation(final DiffOperation op) {
 				return new CopyOperation(op.from, op.path);
 			}
+
+			@Override
+			void emit(final DiffOperation op, final DiffSink sink) throws IOException {
+				sink.copy(op.from, op.path);
+			}
 		},
 		MOVE {
 			@Override
 			JsonPatchOperation toOperation(final DiffOperation op) {
 				return new MoveOperation(op.from, op.path);
 			}
+
+			@Override
+			void emit(final DiffOperation op, final DiffSink sink) throws IOException {
+				sink.move(op.from, op.path);
+			}
 		},
 		REMOVE {
 			@Override
 			JsonPatchOperation toOperation(final DiffOperation op) {
 				return new RemoveOperation(op.from);
 			}
+
+			@Override
+			void emit(final DiffOperation op, final DiffSink sink) throws IOException {
+				sink.remove(op.from, op.oldValue);
+			}
 		},
 		REPLACE {
 			@Override
 			JsonPatchOperation toOperation(final DiffOperation op) {
 				return new ReplaceOperation(op.from, op.value);
 			}
+
+			@Override
+			void emit(final DiffOperation op, final DiffSink sink) throws IOException {
+				sink.replace(op.from, op.oldValue, op.value);
+			}
 		},
 		REMOVEARRAYOBJECT {
 			@Override
 			JsonPatchOperation toOperation(final DiffOperation op) {
 				return new ArrayObjectRemoveOperation(op.from, op.oldValue);
 			}
+
+			@Override
+			void emit(final DiffOperation op, final DiffSink sink) throws IOException {
+				sink.arrayObjectRemove(op.from, op.oldValue);
+			}
 		},
 		REPLACEARRAYOBJECT {
 			@Override
 			JsonPatchOperation toOperation(final DiffOperation op) {
 				return new ArrayObjectReplaceOperation(op.from, op.oldValue, op.value);
 			}
+
+			@Override
+			void emit(final DiffOperation op, final DiffSink sink) throws IOException {
+				sink.arrayObjectReplace(op.from, op.oldValue, op.value);
+			}
 		},;
 
 		abstract JsonPatchOperation toOperation(final DiffOperation op);
+
+		abstract void emit(final DiffOperation op, final DiffSink sink) throws IOException;
 	}
 }
@@ -21,100 +21,197 @@ package com.github.fge.jsonpatch.diff;
 
 import com.github.fge.jsonpatch.diff.DiffOperation;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.github.fge.jackson.JsonNumEquals;
 import com.github.fge.jackson.jsonpointer.JsonPointer;
 import com.github.fge.jsonpatch.JsonPatch;
 import com.github.fge.jsonpatch.JsonPatchOperation;
-import com.google.common.base.Equivalence;
-import com.google.common.base.Predicate;
-import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 
-import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
 
 // TODO: cleanup
-final class DiffProcessor {
-	private static final Equivalence<JsonNode> EQUIVALENCE = JsonNumEquals.getInstance();
-
-	private final Map<JsonPointer, JsonNode> unchanged;
+final class DiffProcessor extends DiffHandler {
+	/*
+	 * Unchanged values, indexed by value; when several pointers hold
+	 * equivalent values, the first one reported wins
+	 */
+	private final Map<EquivalenceKey, JsonPointer> unchanged = Maps.newHashMap();
 
+	/*
+	 * Operations; a null slot is a removal which has since been factored into
+	 * a move
+	 */
 	private final List<DiffOperation> diffs = Lists.newArrayList();
 
-	DiffProcessor(final Map<JsonPointer, JsonNode> unchanged) {
-		this.unchanged = ImmutableMap.copyOf(unchanged);
+	/*
+	 * Indices in diffs of pending removals, indexed by removed value, in
+	 * ascending order
+	 */
+	private final Map<EquivalenceKey, Deque<Integer>> removals = Maps.newHashMap();
+
+	/*
+	 * Additions, by index in diffs; they are turned into copies once all
+	 * unchanged values are known
+	 */
+	private final Map<Integer, EquivalenceKey> additions = Maps.newLinkedHashMap();
+
+	private final DiffHandler positional;
+
+	DiffProcessor(final NodeFingerprints fingerprints) {
+		super(fingerprints);
+		positional = new PositionalView(fingerprints);
+	}
+
+	/**
+	 * Return a view of this processor for positional differences
+	 *
+	 * <p>
+	 * Operations reported through the view are only valid in the order in
+	 * which they are reported: they are never factored into moves or copies,
+	 * and values reported as unchanged are ignored.
+	 * </p>
+	 *
+	 * @return the view
+	 */
+	DiffHandler positional() {
+		return positional;
+	}
+
+	/*
+	 * Unchanged values are reported while diffs are being generated; any
+	 * addition of an equivalent value is factored into a copy when the patch
+	 * is built.
+	 */
+	@Override
+	void valueUnchanged(final JsonPointer pointer, final JsonNode value) {
+		final EquivalenceKey key = getFingerprints().key(value);
+		if (!unchanged.containsKey(key))
+			unchanged.put(key, pointer);
 	}
 
+	@Override
 	void valueReplaced(final JsonPointer pointer, final JsonNode oldValue, final JsonNode newValue) {
 		diffs.add(DiffOperation.replace(pointer, oldValue, newValue));
 	}
 
+	@Override
 	void valueRemoved(final JsonPointer pointer, final JsonNode value) {
+		final EquivalenceKey key = getFingerprints().key(value);
+		Deque<Integer> indices = removals.get(key);
+		if (indices == null) {
+			indices = new ArrayDeque<Integer>();
+			removals.put(key, indices);
+		}
+		indices.addLast(diffs.size());
 		diffs.add(DiffOperation.remove(pointer, value));
 	}
 
+	@Override
 	void valueAdded(final JsonPointer pointer, final JsonNode value) {
-		final int removalIndex = findPreviouslyRemoved(value);
+		final EquivalenceKey key = getFingerprints().key(value);
+		final int removalIndex = findPreviouslyRemoved(key);
 		if (removalIndex != -1) {
 			final DiffOperation removed = diffs.get(removalIndex);
-			diffs.remove(removalIndex);
+			diffs.set(removalIndex, null);
 			diffs.add(DiffOperation.move(removed.getFrom(), value, pointer, value));
 			return;
 		}
-		final JsonPointer ptr = findUnchangedValue(value);
-		final DiffOperation op = ptr != null ? DiffOperation.copy(ptr, pointer, value) : DiffOperation.add(pointer, value);
-
-		diffs.add(op);
+		additions.put(diffs.size(), key);
+		diffs.add(DiffOperation.add(pointer, value));
 	}
 
-	/**
-	 *  Method used to remove a Object attribute from an Array
-	 * @param pointer
-	 * @param oldValue
-	 * @param newValue
-	 */
+	@Override
 	void arrayObjectValueReplaced(final JsonPointer pointer, final JsonNode oldValue, final JsonNode newValue) {
 		diffs.add(DiffOperation.arrayObjectReplace(pointer, oldValue, newValue));
 	}
 
-	/**
-	 *  Method used to remove a complete Object from an Array
-	 * @param pointer
-	 * @param value
-	 */
+	@Override
 	void arrayObjectValueRemoved(final JsonPointer pointer, final JsonNode value) {
 		diffs.add(DiffOperation.arrayObjectRemove(pointer, value));
 	}
 
 	JsonPatch getPatch() {
+		resolveCopies();
+
 		final List<JsonPatchOperation> list = Lists.newArrayList();
 
 		for (final DiffOperation op : diffs)
-			list.add(op.asJsonPatchOperation());
+			if (op != null)
+				list.add(op.asJsonPatchOperation());
 
 		return new JsonPatch(list);
 	}
 
-	@Nullable
-	private JsonPointer findUnchangedValue(final JsonNode value) {
-		final Predicate<JsonNode> predicate = EQUIVALENCE.equivalentTo(value);
-		for (final Map.Entry<JsonPointer, JsonNode> entry : unchanged.entrySet())
-			if (predicate.apply(entry.getValue()))
-				return entry.getKey();
-		return null;
-	}
+	/**
+	 * Report the operations of the patch, in order, to a sink
+	 *
+	 * @param sink the sink
+	 * @throws IOException the sink failed
+	 */
+	void emit(final DiffSink sink) throws IOException {
+		resolveCopies();
 
-	private int findPreviouslyRemoved(final JsonNode value) {
-		final Predicate<JsonNode> predicate = EQUIVALENCE.equivalentTo(value);
+		for (final DiffOperation op : diffs)
+			if (op != null)
+				op.emit(sink);
+	}
 
+	private void resolveCopies() {
+		JsonPointer from;
 		DiffOperation op;
+		for (final Map.Entry<Integer, EquivalenceKey> entry : additions.entrySet()) {
+			from = unchanged.get(entry.getValue());
+			if (from == null)
+				continue;
+			op = diffs.get(entry.getKey());
+			diffs.set(entry.getKey(), DiffOperation.copy(from, op.getPath(), op.getValue()));
+		}
+		additions.clear();
+	}
+
+	private int findPreviouslyRemoved(final EquivalenceKey key) {
+		final Deque<Integer> indices = removals.get(key);
+		if (indices == null || indices.isEmpty())
+			return -1;
+		return indices.removeFirst();
+	}
+
+	private final class PositionalView extends DiffHandler {
+		private PositionalView(final NodeFingerprints fingerprints) {
+			super(fingerprints);
+		}
+
+		@Override
+		void valueUnchanged(final JsonPointer pointer, final JsonNode value) {
+		}
+
+		@Override
+		void valueReplaced(final JsonPointer pointer, final JsonNode oldValue, final JsonNode newValue) {
+			DiffProcessor.this.valueReplaced(pointer, oldValue, newValue);
+		}
+
+		@Override
+		void valueRemoved(final JsonPointer pointer, final JsonNode value) {
+			diffs.add(DiffOperation.remove(pointer, value));
+		}
+
+		@Override
+		void valueAdded(final JsonPointer pointer, final JsonNode value) {
+			diffs.add(DiffOperation.add(pointer, value));
+		}
+
+		@Override
+		void arrayObjectValueReplaced(final JsonPointer pointer, final JsonNode oldValue, final JsonNode newValue) {
+			DiffProcessor.this.arrayObjectValueReplaced(pointer, oldValue, newValue);
+		}
 
-		for (int i = 0; i < diffs.size(); i++) {
-			op = diffs.get(i);
-			if (op.getType() == DiffOperation.Type.REMOVE && predicate.apply(op.getOldValue()))
-				return i;
+		@Override
+		void arrayObjectValueRemoved(final JsonPointer pointer, final JsonNode value) {
+			DiffProcessor.this.arrayObjectValueRemoved(pointer, value);
 		}
-		return -1;
 	}
 }
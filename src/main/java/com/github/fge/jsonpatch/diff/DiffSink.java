@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch.diff;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+
+/**
+ * Receiver of the operations of a diff, in patch order
+ *
+ * <p>
+ * Operations are reported one at a time by
+ * {@link JsonDiff#diff(DiffConfig, JsonNode, JsonNode, DiffSink)}, in the
+ * order they would appear in the equivalent {@link
+ * com.github.fge.jsonpatch.JsonPatch}; a sink can therefore write a patch out,
+ * or analyze it, without the patch ever being built in memory.
+ * </p>
+ *
+ * @see JsonPatchSink
+ * @see JsonGeneratorSink
+ */
+public interface DiffSink {
+	/**
+	 * An "add" operation
+	 *
+	 * @param path the path
+	 * @param value the added value
+	 * @throws IOException the operation could not be handled
+	 */
+	void add(JsonPointer path, JsonNode value) throws IOException;
+
+	/**
+	 * A "remove" operation
+	 *
+	 * @param path the path
+	 * @param oldValue the removed value
+	 * @throws IOException the operation could not be handled
+	 */
+	void remove(JsonPointer path, JsonNode oldValue) throws IOException;
+
+	/**
+	 * A "replace" operation
+	 *
+	 * @param path the path
+	 * @param oldValue the replaced value
+	 * @param value the new value
+	 * @throws IOException the operation could not be handled
+	 */
+	void replace(JsonPointer path, JsonNode oldValue, JsonNode value) throws IOException;
+
+	/**
+	 * A "move" operation
+	 *
+	 * @param from the path of the moved value
+	 * @param path the destination path
+	 * @throws IOException the operation could not be handled
+	 */
+	void move(JsonPointer from, JsonPointer path) throws IOException;
+
+	/**
+	 * A "copy" operation
+	 *
+	 * @param from the path of the copied value
+	 * @param path the destination path
+	 * @throws IOException the operation could not be handled
+	 */
+	void copy(JsonPointer from, JsonPointer path) throws IOException;
+
+	/**
+	 * The removal of a complete object from an array
+	 *
+	 * @param path the path of the object
+	 * @param originalValue the removed object
+	 * @throws IOException the operation could not be handled
+	 * @see com.github.fge.jsonpatch.ArrayObjectRemoveOperation
+	 */
+	void arrayObjectRemove(JsonPointer path, JsonNode originalValue) throws IOException;
+
+	/**
+	 * The replacement of an attribute of an object within an array
+	 *
+	 * @param path the path of the attribute
+	 * @param originalValue the whole object, before replacement
+	 * @param value the new value of the attribute
+	 * @throws IOException the operation could not be handled
+	 * @see com.github.fge.jsonpatch.ArrayObjectReplaceOperation
+	 */
+	void arrayObjectReplace(JsonPointer path, JsonNode originalValue, JsonNode value) throws IOException;
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch.diff;
+
+import java.util.Set;
+
+import javax.annotation.concurrent.Immutable;
+
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * The number of operations of a diff, by type, and the paths they touch
+ *
+ * <p>
+ * Operations on an object within a keyed array count as removals and
+ * replacements. Touched paths are truncated to a maximum depth, so that, for
+ * instance, a depth of 1 gives the top level members which differ; a move
+ * touches both its source and destination paths.
+ * </p>
+ *
+ * @see JsonDiff#summarize(DiffConfig, com.fasterxml.jackson.databind.JsonNode,
+ *      com.fasterxml.jackson.databind.JsonNode, int)
+ */
+@Immutable
+public final class DiffSummary {
+	private final int added;
+	private final int removed;
+	private final int replaced;
+	private final int moved;
+	private final int copied;
+	private final Set<JsonPointer> paths;
+
+	DiffSummary(final int added, final int removed, final int replaced, final int moved, final int copied,
+			final Set<JsonPointer> paths) {
+		this.added = added;
+		this.removed = removed;
+		this.replaced = replaced;
+		this.moved = moved;
+		this.copied = copied;
+		this.paths = ImmutableSet.copyOf(paths);
+	}
+
+	public int getAdded() {
+		return added;
+	}
+
+	public int getRemoved() {
+		return removed;
+	}
+
+	public int getReplaced() {
+		return replaced;
+	}
+
+	public int getMoved() {
+		return moved;
+	}
+
+	public int getCopied() {
+		return copied;
+	}
+
+	/**
+	 * Return the total number of operations
+	 *
+	 * @return the number of operations
+	 */
+	public int getTotal() {
+		return added + removed + replaced + moved + copied;
+	}
+
+	/**
+	 * Tell whether the diffed values are the same
+	 *
+	 * @return true if the diff has no operation
+	 */
+	public boolean isEmpty() {
+		return getTotal() == 0;
+	}
+
+	/**
+	 * Return the truncated paths touched by operations, in the order they
+	 * were first touched
+	 *
+	 * @return the paths
+	 */
+	public Set<JsonPointer> getPaths() {
+		return paths;
+	}
+
+	@Override
+	public String toString() {
+		return "add: " + added + ", remove: " + removed + ", replace: " + replaced + ", move: " + moved
+				+ ", copy: " + copied + ", paths: " + paths;
+	}
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch.diff;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+
+/**
+ * A {@link DiffHandler} stopping a diff at its first difference
+ *
+ * <p>
+ * Any difference is reported by throwing {@link DifferenceFound}, so that
+ * the walk of the diffed values stops there.
+ * </p>
+ */
+final class DifferenceDetector extends DiffHandler {
+	DifferenceDetector(final NodeFingerprints fingerprints) {
+		super(fingerprints);
+	}
+
+	@Override
+	void valueUnchanged(final JsonPointer pointer, final JsonNode value) {
+	}
+
+	@Override
+	void valueReplaced(final JsonPointer pointer, final JsonNode oldValue, final JsonNode newValue) {
+		throw DifferenceFound.INSTANCE;
+	}
+
+	@Override
+	void valueRemoved(final JsonPointer pointer, final JsonNode value) {
+		throw DifferenceFound.INSTANCE;
+	}
+
+	@Override
+	void valueAdded(final JsonPointer pointer, final JsonNode value) {
+		throw DifferenceFound.INSTANCE;
+	}
+
+	@Override
+	void arrayObjectValueReplaced(final JsonPointer pointer, final JsonNode oldValue, final JsonNode newValue) {
+		throw DifferenceFound.INSTANCE;
+	}
+
+	@Override
+	void arrayObjectValueRemoved(final JsonPointer pointer, final JsonNode value) {
+		throw DifferenceFound.INSTANCE;
+	}
+
+	/**
+	 * Signal of a difference; it carries nothing, not even a stack trace
+	 */
+	static final class DifferenceFound extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		private static final DifferenceFound INSTANCE = new DifferenceFound();
+
+		private DifferenceFound() {
+			super(null, null, false, false);
+		}
+	}
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch.diff;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jackson.JsonNumEquals;
+import com.google.common.base.Equivalence;
+
+/**
+ * Hash key wrapping a {@link JsonNode} under {@link JsonNumEquals} equivalence
+ *
+ * <p>
+ * The hash is the node's fingerprint, as computed by {@link NodeFingerprints}.
+ * Numbers are hashed by value, and every zero (including {@code -0.0}) hashes
+ * alike, so equivalent nodes always share the same hash.
+ * </p>
+ */
+final class EquivalenceKey {
+	private static final Equivalence<JsonNode> EQUIVALENCE = JsonNumEquals.getInstance();
+
+	private final JsonNode node;
+	private final int hash;
+
+	EquivalenceKey(final JsonNode node, final int hash) {
+		this.node = node;
+		this.hash = hash;
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof EquivalenceKey))
+			return false;
+		final EquivalenceKey other = (EquivalenceKey) obj;
+		return hash == other.hash && EQUIVALENCE.equivalent(node, other.node);
+	}
+}
@@ -21,37 +21,41 @@ package com.github.fge.jsonpatch.diff;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 import javax.annotation.ParametersAreNonnullByDefault;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.github.fge.jackson.JacksonUtils;
-import com.github.fge.jackson.JsonNumEquals;
 import com.github.fge.jackson.NodeType;
 import com.github.fge.jackson.jsonpointer.JsonPointer;
 import com.github.fge.jackson.jsonpointer.JsonPointerException;
+import com.github.fge.jsonpatch.JsonDiffCancelledException;
 import com.github.fge.jsonpatch.JsonDiffException;
 import com.github.fge.jsonpatch.JsonPatch;
 import com.github.fge.jsonpatch.JsonPatchMessages;
 import com.github.fge.msgsimple.bundle.MessageBundle;
 import com.github.fge.msgsimple.load.MessageBundles;
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.base.Equivalence;
+import com.google.common.collect.HashMultiset;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Multiset;
 import com.google.common.collect.Sets;
 
 /**
@@ -86,9 +90,9 @@ import com.google.common.collect.Sets;
 @ParametersAreNonnullByDefault
 public final class JsonDiff {
 	private static final MessageBundle BUNDLE = MessageBundles.getBundle(JsonPatchMessages.class);
-	private static final ObjectMapper MAPPER = JacksonUtils.newMapper();
 
-	private static final Equivalence<JsonNode> EQUIVALENCE = JsonNumEquals.getInstance();
+	private static final JsonNodeFactory FACTORY = JacksonUtils.nodeFactory();
+
 	private static Logger logger = LoggerFactory.getLogger(JsonDiff.class);
 
 	private JsonDiff() {
@@ -107,12 +111,28 @@ public final class JsonDiff {
 	 * @since 1.9
 	 */
 	public static JsonPatch asJsonPatch(final JsonNode source, final JsonNode target) {
+		return asJsonPatch(ArrayDiffMode.INDEX, source, target);
+	}
+
+	/**
+	 * Generate a JSON patch for transforming the source node into the target
+	 * node, comparing arrays in the given mode
+	 *
+	 * @param mode
+	 *            how arrays are compared
+	 * @param source
+	 *            the node to be patched
+	 * @param target
+	 *            the expected result after applying the patch
+	 * @return the patch as a {@link JsonPatch}
+	 */
+	public static JsonPatch asJsonPatch(final ArrayDiffMode mode, final JsonNode source, final JsonNode target) {
+		BUNDLE.checkNotNull(mode, "common.nullArgument");
 		BUNDLE.checkNotNull(source, "common.nullArgument");
 		BUNDLE.checkNotNull(target, "common.nullArgument");
-		final Map<JsonPointer, JsonNode> unchanged = getUnchangedValues(source, target);
-		final DiffProcessor processor = new DiffProcessor(unchanged);
+		final DiffProcessor processor = new DiffProcessor(new NodeFingerprints());
 
-		generateDiffs(processor, JsonPointer.empty(), source, target);
+		generateDiffs(processor, processor, JsonPointer.empty(), source, target, mode);
 		return processor.getPatch();
 	}
 
@@ -127,19 +147,48 @@ public final class JsonDiff {
 	 * @return the patch as a {@link JsonNode}
 	 */
 	public static JsonNode asJson(final JsonNode source, final JsonNode target) {
-		final String s;
+		return asJson(ArrayDiffMode.INDEX, source, target);
+	}
+
+	/**
+	 * Generate a JSON patch for transforming the source node into the target
+	 * node, comparing arrays in the given mode
+	 *
+	 * @param mode
+	 *            how arrays are compared
+	 * @param source
+	 *            the node to be patched
+	 * @param target
+	 *            the expected result after applying the patch
+	 * @return the patch as a {@link JsonNode}
+	 */
+	public static JsonNode asJson(final ArrayDiffMode mode, final JsonNode source, final JsonNode target) {
+		BUNDLE.checkNotNull(mode, "common.nullArgument");
+		BUNDLE.checkNotNull(source, "common.nullArgument");
+		BUNDLE.checkNotNull(target, "common.nullArgument");
+		final DiffProcessor processor = new DiffProcessor(new NodeFingerprints());
+		final JsonNodeSink sink = new JsonNodeSink();
+
+		generateDiffs(processor, processor, JsonPointer.empty(), source, target, mode);
 		try {
-			s = MAPPER.writeValueAsString(asJsonPatch(source, target));
-			return MAPPER.readTree(s);
+			processor.emit(sink);
 		} catch (IOException e) {
 			throw new RuntimeException("cannot generate JSON diff", e);
 		}
+		return sink.getPatch();
 	}
 
-	private static void generateDiffs(final DiffProcessor processor, final JsonPointer pointer, final JsonNode source,
-			final JsonNode target) {
-		if (EQUIVALENCE.equivalent(source, target))
+	/*
+	 * Events are reported to handler, which is either the processor itself or,
+	 * within an array diffed by longest common subsequence, its positional
+	 * view
+	 */
+	private static void generateDiffs(final DiffProcessor processor, final DiffHandler handler,
+			final JsonPointer pointer, final JsonNode source, final JsonNode target, final ArrayDiffMode mode) {
+		if (processor.getFingerprints().equivalent(source, target)) {
+			handler.valueUnchanged(pointer, target);
 			return;
+		}
 
 		final NodeType firstType = NodeType.getNodeType(source);
 		final NodeType secondType = NodeType.getNodeType(target);
@@ -148,7 +197,7 @@ public final class JsonDiff {
 		 * Node types differ: generate a replacement operation.
 		 */
 		if (firstType != secondType) {
-			processor.valueReplaced(pointer, source, target);
+			handler.valueReplaced(pointer, source, target);
 			return;
 		}
 
@@ -159,7 +208,7 @@ public final class JsonDiff {
 		 * in case this is not a container, generate a replace operation.
 		 */
 		if (!source.isContainerNode()) {
-			processor.valueReplaced(pointer, source, target);
+			handler.valueReplaced(pointer, source, target);
 			return;
 		}
 
@@ -168,28 +217,30 @@ public final class JsonDiff {
 		 * delegate.
 		 */
 		if (firstType == NodeType.OBJECT)
-			generateObjectDiffs(processor, pointer, (ObjectNode) source, (ObjectNode) target);
-		else // array
-			generateArrayDiffs(processor, pointer, (ArrayNode) source, (ArrayNode) target);
+			generateObjectDiffs(processor, handler, pointer, (ObjectNode) source, (ObjectNode) target, mode);
+		else if (mode == ArrayDiffMode.LCS)
+			generateLcsArrayDiffs(processor, pointer, (ArrayNode) source, (ArrayNode) target);
+		else
+			generateArrayDiffs(processor, handler, pointer, (ArrayNode) source, (ArrayNode) target, mode);
 	}
 
-	private static void generateObjectDiffs(final DiffProcessor processor, final JsonPointer pointer,
-			final ObjectNode source, final ObjectNode target) {
+	private static void generateObjectDiffs(final DiffProcessor processor, final DiffHandler handler,
+			final JsonPointer pointer, final ObjectNode source, final ObjectNode target, final ArrayDiffMode mode) {
 		final Set<String> firstFields = Sets.newTreeSet(Sets.newHashSet(source.fieldNames()));
 		final Set<String> secondFields = Sets.newTreeSet(Sets.newHashSet(target.fieldNames()));
 
 		for (final String field : Sets.difference(firstFields, secondFields))
-			processor.valueRemoved(pointer.append(field), source.get(field));
+			handler.valueRemoved(pointer.append(field), source.get(field));
 
 		for (final String field : Sets.difference(secondFields, firstFields))
-			processor.valueAdded(pointer.append(field), target.get(field));
+			handler.valueAdded(pointer.append(field), target.get(field));
 
 		for (final String field : Sets.intersection(firstFields, secondFields))
-			generateDiffs(processor, pointer.append(field), source.get(field), target.get(field));
+			generateDiffs(processor, handler, pointer.append(field), source.get(field), target.get(field), mode);
 	}
 
-	private static void generateArrayDiffs(final DiffProcessor processor, final JsonPointer pointer,
-			final ArrayNode source, final ArrayNode target) {
+	private static void generateArrayDiffs(final DiffProcessor processor, final DiffHandler handler,
+			final JsonPointer pointer, final ArrayNode source, final ArrayNode target, final ArrayDiffMode mode) {
 		final int firstSize = source.size();
 		final int secondSize = target.size();
 		final int size = Math.min(firstSize, secondSize);
@@ -199,26 +250,60 @@ public final class JsonDiff {
 		 * target; the index of removal is always the original arrays's length.
 		 */
 		for (int index = size; index < firstSize; index++)
-			processor.valueRemoved(pointer.append(size), source.get(index));
+			handler.valueRemoved(pointer.append(size), source.get(index));
 
 		for (int index = 0; index < size; index++)
-			generateDiffs(processor, pointer.append(index), source.get(index), target.get(index));
+			generateDiffs(processor, handler, pointer.append(index), source.get(index), target.get(index), mode);
 
 		// Deal with the destination array being larger...
 		for (int index = size; index < secondSize; index++)
-			processor.valueAdded(pointer.append("-"), target.get(index));
+			handler.valueAdded(pointer.append("-"), target.get(index));
+	}
+
+	/*
+	 * Elements outside of a longest common subsequence of both arrays are
+	 * removed or added; where removals and additions meet, elements are paired
+	 * and diffed against each other. Indices are those of the array as patched
+	 * so far, so everything within the array goes through the positional view
+	 * of the processor.
+	 */
+	private static void generateLcsArrayDiffs(final DiffProcessor processor, final JsonPointer pointer,
+			final ArrayNode source, final ArrayNode target) {
+		final DiffHandler handler = processor.positional();
+		final List<int[]> matches = LongestCommonSubsequence.of(processor.getFingerprints(), source, target);
+		matches.add(new int[] { source.size(), target.size() });
+
+		int index = 0;
+		int sourceIndex = 0;
+		int targetIndex = 0;
+		int removed, added, paired;
+		for (final int[] match : matches) {
+			removed = match[0] - sourceIndex;
+			added = match[1] - targetIndex;
+			paired = Math.min(removed, added);
+			for (int i = 0; i < paired; i++)
+				generateDiffs(processor, handler, pointer.append(index++), source.get(sourceIndex + i),
+						target.get(targetIndex + i), ArrayDiffMode.LCS);
+			for (int i = paired; i < removed; i++)
+				handler.valueRemoved(pointer.append(index), source.get(sourceIndex + i));
+			for (int i = paired; i < added; i++)
+				handler.valueAdded(pointer.append(index++), target.get(targetIndex + i));
+			index++;
+			sourceIndex = match[0] + 1;
+			targetIndex = match[1] + 1;
+		}
 	}
 
 	@VisibleForTesting
 	static Map<JsonPointer, JsonNode> getUnchangedValues(final JsonNode source, final JsonNode target) {
 		final Map<JsonPointer, JsonNode> ret = Maps.newHashMap();
-		computeUnchanged(ret, JsonPointer.empty(), source, target);
+		computeUnchanged(new NodeFingerprints(), ret, JsonPointer.empty(), source, target);
 		return ret;
 	}
 
-	private static void computeUnchanged(final Map<JsonPointer, JsonNode> ret, final JsonPointer pointer,
-			final JsonNode first, final JsonNode second) {
-		if (EQUIVALENCE.equivalent(first, second)) {
+	private static void computeUnchanged(final NodeFingerprints fingerprints, final Map<JsonPointer, JsonNode> ret,
+			final JsonPointer pointer, final JsonNode first, final JsonNode second) {
+		if (fingerprints.equivalent(first, second)) {
 			ret.put(pointer, second);
 			return;
 		}
@@ -233,18 +318,18 @@ public final class JsonDiff {
 
 		switch (firstType) {
 		case OBJECT:
-			computeObject(ret, pointer, first, second);
+			computeObject(fingerprints, ret, pointer, first, second);
 			break;
 		case ARRAY:
-			computeArray(ret, pointer, first, second);
+			computeArray(fingerprints, ret, pointer, first, second);
 			break;
 		default:
 			/* nothing */
 		}
 	}
 
-	private static void computeObject(final Map<JsonPointer, JsonNode> ret, final JsonPointer pointer,
-			final JsonNode source, final JsonNode target) {
+	private static void computeObject(final NodeFingerprints fingerprints, final Map<JsonPointer, JsonNode> ret,
+			final JsonPointer pointer, final JsonNode source, final JsonNode target) {
 		final Iterator<String> firstFields = source.fieldNames();
 
 		String name;
@@ -253,16 +338,24 @@ public final class JsonDiff {
 			name = firstFields.next();
 			if (!target.has(name))
 				continue;
-			computeUnchanged(ret, pointer.append(name), source.get(name), target.get(name));
+			computeUnchanged(fingerprints, ret, pointer.append(name), source.get(name), target.get(name));
 		}
 	}
 
-	private static void computeArray(final Map<JsonPointer, JsonNode> ret, final JsonPointer pointer,
-			final JsonNode source, final JsonNode target) {
+	private static void computeArray(final NodeFingerprints fingerprints, final Map<JsonPointer, JsonNode> ret,
+			final JsonPointer pointer, final JsonNode source, final JsonNode target) {
 		final int size = Math.min(source.size(), target.size());
 
 		for (int i = 0; i < size; i++)
-			computeUnchanged(ret, pointer.append(i), source.get(i), target.get(i));
+			computeUnchanged(fingerprints, ret, pointer.append(i), source.get(i), target.get(i));
+	}
+
+	private static void collectUnchangedArrayValues(final DiffHandler processor, final JsonPointer pointer,
+			final JsonNode source, final JsonNode target) {
+		final Map<JsonPointer, JsonNode> unchanged = Maps.newHashMap();
+		computeArray(processor.getFingerprints(), unchanged, pointer, source, target);
+		for (final Map.Entry<JsonPointer, JsonNode> entry : unchanged.entrySet())
+			processor.valueUnchanged(entry.getKey(), entry.getValue());
 	}
 
 	// Custom changes to existing Methods
@@ -284,14 +377,55 @@ public final class JsonDiff {
 	 */
 	public static JsonNode asJson(final JsonNode source, final JsonNode target,
 			Map<JsonPointer, ?> attributesKeyFields) throws JsonDiffException {
-		final String s;
+		return asJson(DiffConfig.fromKeyFields(attributesKeyFields), source, target);
+	}
+
+	/**
+	 * Generate a custom diff, as a {@link JsonNode}, using a prebuilt
+	 * configuration
+	 *
+	 * @param config
+	 *            the diff configuration
+	 * @param source
+	 *            old json
+	 * @param target
+	 *            new json
+	 * @return JsonNode output in JsonNode format
+	 * @throws JsonDiffException
+	 * 
+	 * @see #asJsonPatch(DiffConfig, JsonNode, JsonNode)
+	 */
+	public static JsonNode asJson(final DiffConfig config, final JsonNode source, final JsonNode target)
+			throws JsonDiffException {
+		return asJson(config, source, target, CancellationToken.NONE);
+	}
+
+	/**
+	 * Generate a custom diff, as a {@link JsonNode}, unless it is cancelled
+	 *
+	 * @param config
+	 *            the diff configuration
+	 * @param source
+	 *            old json
+	 * @param target
+	 *            new json
+	 * @param token
+	 *            the token to stop the diff with
+	 * @return JsonNode output in JsonNode format
+	 * @throws JsonDiffException
+	 *             the diff failed, or was cancelled (see
+	 *             {@link JsonDiffCancelledException})
+	 */
+	public static JsonNode asJson(final DiffConfig config, final JsonNode source, final JsonNode target,
+			final CancellationToken token) throws JsonDiffException {
+		final JsonNodeSink sink = new JsonNodeSink();
 
 		try {
-			s = MAPPER.writeValueAsString(asJsonPatch(source, target, attributesKeyFields));
-			return MAPPER.readTree(s);
+			diff(config, source, target, sink, token);
 		} catch (IOException e) {
 			throw new JsonDiffException(BUNDLE.getMessage("jsonDiff.generic"), e);
 		}
+		return sink.getPatch();
 	}
 
 	/**
@@ -315,14 +449,360 @@ public final class JsonDiff {
 	 */
 	public static JsonPatch asJsonPatch(final JsonNode source, final JsonNode target,
 			Map<JsonPointer, ?> attributesKeyFields) throws JsonDiffException {
+		return asJsonPatch(DiffConfig.fromKeyFields(attributesKeyFields), source, target);
+	}
+
+	/**
+	 * Generate a custom diff, as a {@link JsonPatch}, using a prebuilt
+	 * configuration
+	 * 
+	 * <p>
+	 * This is equivalent to the variant taking a map of key fields, except
+	 * that the configuration is only analyzed once; it can be shared by any
+	 * number of calls, including concurrent ones.
+	 * </p>
+	 * 
+	 * @param config
+	 *            the diff configuration
+	 * @param source
+	 *            old json
+	 * @param target
+	 *            new json
+	 * @return JsonPatch output in JsonPatch format
+	 * @throws JsonDiffException
+	 * 
+	 * @see DiffConfig
+	 */
+	public static JsonPatch asJsonPatch(final DiffConfig config, final JsonNode source, final JsonNode target)
+			throws JsonDiffException {
+		return asJsonPatch(config, source, target, CancellationToken.NONE);
+	}
+
+	/**
+	 * Generate a custom diff, as a {@link JsonPatch}, unless it is cancelled
+	 *
+	 * <p>
+	 * The token is checked for every value walked down during the diff, so
+	 * that a diff stops shortly after its token is cancelled or its deadline
+	 * has passed.
+	 * </p>
+	 *
+	 * @param config
+	 *            the diff configuration
+	 * @param source
+	 *            old json
+	 * @param target
+	 *            new json
+	 * @param token
+	 *            the token to stop the diff with
+	 * @return JsonPatch output in JsonPatch format
+	 * @throws JsonDiffException
+	 *             the diff failed, or was cancelled (see
+	 *             {@link JsonDiffCancelledException})
+	 *
+	 * @see CancellationToken
+	 */
+	public static JsonPatch asJsonPatch(final DiffConfig config, final JsonNode source, final JsonNode target,
+			final CancellationToken token) throws JsonDiffException {
+		final JsonPatchSink sink = new JsonPatchSink();
+
+		try {
+			diff(config, source, target, sink, token);
+		} catch (IOException e) {
+			throw new JsonDiffException(BUNDLE.getMessage("jsonDiff.generic"), e);
+		}
+		return sink.getPatch();
+	}
+
+	/**
+	 * Generate a custom diff, reporting its operations to a sink
+	 * 
+	 * <p>
+	 * Operations are reported in the order they would have in the patch
+	 * returned by {@link #asJsonPatch(DiffConfig, JsonNode, JsonNode)}. If the
+	 * configuration disables factoring of moves and copies, operations are
+	 * reported as soon as they are found.
+	 * </p>
+	 * 
+	 * @param config
+	 *            the diff configuration
+	 * @param source
+	 *            old json
+	 * @param target
+	 *            new json
+	 * @param sink
+	 *            the sink to report operations to
+	 * @throws JsonDiffException
+	 * @throws IOException
+	 *             the sink failed
+	 * 
+	 * @see DiffConfigBuilder#setFactoring(boolean)
+	 */
+	public static void diff(final DiffConfig config, final JsonNode source, final JsonNode target,
+			final DiffSink sink) throws JsonDiffException, IOException {
+		diff(config, source, target, sink, CancellationToken.NONE);
+	}
+
+	/**
+	 * Generate a custom diff, reporting its operations to a sink, unless it is
+	 * cancelled
+	 * 
+	 * <p>
+	 * Operations reported to the sink before the diff is cancelled stay
+	 * reported.
+	 * </p>
+	 * 
+	 * @param config
+	 *            the diff configuration
+	 * @param source
+	 *            old json
+	 * @param target
+	 *            new json
+	 * @param sink
+	 *            the sink to report operations to
+	 * @param token
+	 *            the token to stop the diff with
+	 * @throws JsonDiffException
+	 *             the diff failed, or was cancelled (see
+	 *             {@link JsonDiffCancelledException})
+	 * @throws IOException
+	 *             the sink failed
+	 */
+	public static void diff(final DiffConfig config, final JsonNode source, final JsonNode target,
+			final DiffSink sink, final CancellationToken token) throws JsonDiffException, IOException {
+		BUNDLE.checkNotNull(config, "common.nullArgument");
 		BUNDLE.checkNotNull(source, "common.nullArgument");
 		BUNDLE.checkNotNull(target, "common.nullArgument");
+		BUNDLE.checkNotNull(sink, "common.nullArgument");
+		BUNDLE.checkNotNull(token, "common.nullArgument");
 
-		final Map<JsonPointer, JsonNode> unchanged = getUnchangedValues(source, target);
-		final DiffProcessor processor = new DiffProcessor(unchanged);
+		diff(config, source, target, sink, new DiffContext(config, token, null), new NodeFingerprints());
+	}
 
-		generateDiffs(processor, JsonPointer.empty(), source, target, attributesKeyFields);
-		return processor.getPatch();
+	/**
+	 * Prepare a source to be diffed against several targets
+	 * 
+	 * @param config
+	 *            the diff configuration
+	 * @param source
+	 *            old json
+	 * @return the prepared source
+	 * 
+	 * @see PreparedSource
+	 */
+	public static PreparedSource prepare(final DiffConfig config, final JsonNode source) {
+		BUNDLE.checkNotNull(config, "common.nullArgument");
+		BUNDLE.checkNotNull(source, "common.nullArgument");
+
+		return new PreparedSource(config, source);
+	}
+
+	/**
+	 * Prepare custom diffs of many pairs of values, run by an executor
+	 * 
+	 * @param config
+	 *            the diff configuration
+	 * @param executor
+	 *            the executor to run diffs with
+	 * @param maxInFlight
+	 *            the maximum number of diffs handed to the executor and not
+	 *            yet reported at any time
+	 * @return the batch
+	 * 
+	 * @see BatchDiff
+	 */
+	public static BatchDiff batch(final DiffConfig config, final Executor executor, final int maxInFlight) {
+		BUNDLE.checkNotNull(config, "common.nullArgument");
+		BUNDLE.checkNotNull(executor, "common.nullArgument");
+		BUNDLE.checkArgument(maxInFlight > 0, "jsonDiff.badMaxInFlight");
+
+		return new BatchDiff(config, executor, maxInFlight);
+	}
+
+	static void diff(final PreparedSource prepared, final JsonNode target, final DiffSink sink,
+			final CancellationToken token) throws JsonDiffException, IOException {
+		BUNDLE.checkNotNull(target, "common.nullArgument");
+		BUNDLE.checkNotNull(sink, "common.nullArgument");
+		BUNDLE.checkNotNull(token, "common.nullArgument");
+
+		final DiffConfig config = prepared.getConfig();
+		diff(config, prepared.getSource(), target, sink, new DiffContext(config, token, prepared),
+				prepared.newFingerprints());
+	}
+
+	private static void diff(final DiffConfig config, final JsonNode source, final JsonNode target,
+			final DiffSink sink, final DiffContext context, final NodeFingerprints fingerprints)
+			throws JsonDiffException, IOException {
+		if (!config.factoring) {
+			try {
+				generateDiffs(new StreamingDiffHandler(fingerprints, sink), config, source, target, context);
+			} catch (StreamingDiffHandler.SinkFailure e) {
+				throw e.getCause();
+			}
+			return;
+		}
+
+		final DiffProcessor processor = new DiffProcessor(fingerprints);
+		generateDiffs(processor, config, source, target, context);
+		processor.emit(sink);
+	}
+
+	/**
+	 * Tell whether a custom diff would find no difference
+	 * 
+	 * <p>
+	 * Arrays are compared as they are diffed, by key where the configuration
+	 * has one, but the comparison stops at the first difference, and no
+	 * operation is ever built. Parallelism and replacement ratio settings of
+	 * the configuration are not used.
+	 * </p>
+	 * 
+	 * @param config
+	 *            the diff configuration
+	 * @param source
+	 *            old json
+	 * @param target
+	 *            new json
+	 * @return true if a custom diff of the values would be empty
+	 * @throws JsonDiffException
+	 */
+	public static boolean isEquivalent(final DiffConfig config, final JsonNode source, final JsonNode target)
+			throws JsonDiffException {
+		BUNDLE.checkNotNull(config, "common.nullArgument");
+		BUNDLE.checkNotNull(source, "common.nullArgument");
+		BUNDLE.checkNotNull(target, "common.nullArgument");
+
+		return isEquivalent(config, source, target, new NodeFingerprints(), null);
+	}
+
+	static boolean isEquivalent(final PreparedSource prepared, final JsonNode target) throws JsonDiffException {
+		BUNDLE.checkNotNull(target, "common.nullArgument");
+
+		return isEquivalent(prepared.getConfig(), prepared.getSource(), target, prepared.newFingerprints(),
+				prepared);
+	}
+
+	private static boolean isEquivalent(final DiffConfig config, final JsonNode source, final JsonNode target,
+			final NodeFingerprints fingerprints, final PreparedSource prepared) throws JsonDiffException {
+		try {
+			generateDiffs(new DifferenceDetector(fingerprints), JsonPointer.empty(), source, target,
+					config.getTrie(), DiffContext.firstDifference(config, prepared));
+		} catch (DifferenceDetector.DifferenceFound e) {
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Summarize a custom diff, by top level member
+	 * 
+	 * @param config
+	 *            the diff configuration
+	 * @param source
+	 *            old json
+	 * @param target
+	 *            new json
+	 * @return the summary
+	 * @throws JsonDiffException
+	 * 
+	 * @see #summarize(DiffConfig, JsonNode, JsonNode, int)
+	 */
+	public static DiffSummary summarize(final DiffConfig config, final JsonNode source, final JsonNode target)
+			throws JsonDiffException {
+		return summarize(config, source, target, 1);
+	}
+
+	/**
+	 * Summarize a custom diff
+	 * 
+	 * <p>
+	 * Operations are counted as they are reported, and no patch is built. If
+	 * the configuration disables factoring, the diff does not even retain
+	 * them.
+	 * </p>
+	 * 
+	 * @param config
+	 *            the diff configuration
+	 * @param source
+	 *            old json
+	 * @param target
+	 *            new json
+	 * @param depth
+	 *            the number of reference tokens to keep of touched paths
+	 * @return the summary
+	 * @throws JsonDiffException
+	 * 
+	 * @see DiffSummary
+	 */
+	public static DiffSummary summarize(final DiffConfig config, final JsonNode source, final JsonNode target,
+			final int depth) throws JsonDiffException {
+		BUNDLE.checkArgument(depth >= 0, "jsonDiff.badSummaryDepth");
+
+		final SummarySink sink = new SummarySink(depth);
+
+		try {
+			diff(config, source, target, sink);
+		} catch (IOException e) {
+			throw new JsonDiffException(BUNDLE.getMessage("jsonDiff.generic"), e);
+		}
+		return sink.getSummary();
+	}
+
+	/**
+	 * Generate a custom diff, and write it as JSON
+	 * 
+	 * <p>
+	 * The patch is written as an array of operations; the generator is
+	 * neither flushed nor closed.
+	 * </p>
+	 * 
+	 * @param config
+	 *            the diff configuration
+	 * @param source
+	 *            old json
+	 * @param target
+	 *            new json
+	 * @param jgen
+	 *            the generator to write the patch to
+	 * @throws JsonDiffException
+	 * @throws IOException
+	 *             the patch could not be written
+	 */
+	public static void writePatch(final DiffConfig config, final JsonNode source, final JsonNode target,
+			final JsonGenerator jgen) throws JsonDiffException, IOException {
+		BUNDLE.checkNotNull(jgen, "common.nullArgument");
+
+		jgen.writeStartArray();
+		diff(config, source, target, new JsonGeneratorSink(jgen));
+		jgen.writeEndArray();
+	}
+
+	/*
+	 * Walk the source and target of a custom diff, in parallel if so
+	 * configured
+	 */
+	private static void generateDiffs(final DiffHandler processor, final DiffConfig config, final JsonNode source,
+			final JsonNode target, final DiffContext context) throws JsonDiffException {
+		final NodeFingerprints fingerprints = processor.getFingerprints();
+
+		if (config.pool == null || fingerprints.size(source, config.getTrie())
+				+ fingerprints.size(target, config.getTrie()) < config.forkThreshold) {
+			generateDiffs(processor, JsonPointer.empty(), source, target, config.getTrie(), context);
+			return;
+		}
+
+		/*
+		 * Values which may be hashed are hashed above, before forking; tasks
+		 * hash anything else in their own layer of fingerprints
+		 */
+		final DiffTask task = new DiffTask(fingerprints) {
+			@Override
+			void diff() throws JsonDiffException {
+				generateDiffs(log, JsonPointer.empty(), source, target, config.getTrie(), context);
+			}
+		};
+		config.pool.invoke(task);
+		task.replay(processor);
 	}
 
 	/**
@@ -336,20 +816,28 @@ public final class JsonDiff {
 	 *            old json
 	 * @param target
 	 *            new json
-	 * @param attributesKeyFields
-	 *            can be null but needed for denoting custom operations.
-	 * @throws IOException
-	 * @throws JsonPointerException
+	 * @param settings
+	 *            the diff settings at this pointer
+	 * @param context
+	 *            the settings of this diff
 	 * @throws JsonDiffException 
 	 * 
 	 */
-	@SuppressWarnings("unchecked")
-	private static void generateDiffs(final DiffProcessor processor, final JsonPointer pointer, final JsonNode source,
-			final JsonNode target, Map<JsonPointer, ?> attributesKeyFields)
+	private static void generateDiffs(final DiffHandler processor, final JsonPointer pointer, final JsonNode source,
+			final JsonNode target, final PointerTrie settings, final DiffContext context)
 			throws JsonDiffException {
 
-		if (EQUIVALENCE.equivalent(source, target))
+		if (settings.isIgnored())
+			return;
+		context.checkCancelled();
+		if (settings.hasIgnoredDescendants()) {
+			// Not the same value as a whole: never a source for copies
+			if (sameValues(processor.getFingerprints(), settings, source, target, false))
+				return;
+		} else if (processor.getFingerprints().equivalent(source, target)) {
+			processor.valueUnchanged(pointer, target);
 			return;
+		}
 		final NodeType firstType = NodeType.getNodeType(source);
 		final NodeType secondType = NodeType.getNodeType(target);
 		/*
@@ -408,32 +896,47 @@ public final class JsonDiff {
 		}
 		/*
 		 * If we reach this point, both nodes are either objects or arrays;
-		 * delegate.
+		 * delegate, buffering operations if they may turn out too expensive.
+		 * Containers with ignored values within are never replaced whole.
 		 */
-		if (firstType == NodeType.OBJECT) {
+		if (!context.isCostBounded() || settings.hasIgnoredDescendants()) {
+			generateContainerDiffs(processor, pointer, source, target, settings, context);
+			return;
+		}
+		final DiffEventLog log = new DiffEventLog(processor.getFingerprints());
+		generateContainerDiffs(log, pointer, source, target, settings, context);
+		if (context.exceedsBudget(log.getCost(), processor.getFingerprints().size(target))) {
+			log.replayUnchanged(processor);
+			processor.valueReplaced(pointer, source, target);
+		} else {
+			log.replay(processor);
+		}
+	}
 
-			generateObjectDiffs(processor, pointer, (ObjectNode) source, (ObjectNode) target, attributesKeyFields);
+	private static void generateContainerDiffs(final DiffHandler processor, final JsonPointer pointer,
+			final JsonNode source, final JsonNode target, final PointerTrie settings, final DiffContext context)
+			throws JsonDiffException {
+		if (source.isObject()) {
+
+			generateObjectDiffs(processor, pointer, (ObjectNode) source, (ObjectNode) target, settings, context);
 
 		} else {
-			if(attributesKeyFields == null|| attributesKeyFields.isEmpty()){
-				generateArrayDiffForNullOrNoKey(processor, pointer, (ArrayNode) source, (ArrayNode) target);
-			}else{
-				Collection<?> primarykeyCollection = attributesKeyFields.values();
-				
-				for(Object primaryKeyObject: primarykeyCollection){
-					if(primaryKeyObject != null){
-						if(primaryKeyObject instanceof String){
-							generateArrayDiffs(processor, pointer, (ArrayNode) source, (ArrayNode) target, (Map<JsonPointer, String>)attributesKeyFields);
-						}else if(primaryKeyObject instanceof Set){
-							HashMap<JsonPointer, Set<String>> primaryKeyFieldsMap = (HashMap<JsonPointer, Set<String>>)attributesKeyFields;
-							generateArrayDiffs(processor, pointer, (ArrayNode) source, (ArrayNode) target, primaryKeyFieldsMap);
-						}else{
-							logger.info("Primary keys value are expected to be null, String or Set of String");
-							throw new JsonDiffException("Primary keys value are expected to be null, String or Set of String");
-						}
-						break;
-					}
-				}
+			/*
+			 * Array elements are not paired by index below, but unchanged
+			 * values are still collected index by index, as the copy
+			 * detection has always done.
+			 */
+			if (!settings.hasIgnoredDescendants())
+				collectUnchangedArrayValues(processor, pointer, source, target);
+			final ArrayKey arrayKey = settings.getArrayKey();
+			if (arrayKey == null) {
+				generateArrayDiffForNullOrNoKey(processor, pointer, (ArrayNode) source, (ArrayNode) target, settings);
+			} else if (arrayKey.isComposite()) {
+				generateArrayDiffs(processor, pointer, (ArrayNode) source, (ArrayNode) target, arrayKey.getFields(),
+						settings, context);
+			} else {
+				generateArrayDiffs(processor, pointer, (ArrayNode) source, (ArrayNode) target, arrayKey.getField(),
+						settings, context);
 			}
 		}
 	}
@@ -447,25 +950,27 @@ public final class JsonDiff {
 	 *            old json
 	 * @param target
 	 *            new json
-	 * @param attributesKeyFields
-	 *            can be null but needed for denoting custom operations.
-	 * @throws IOException
-	 * @throws JsonPointerException
+	 * @param settings
+	 *            the diff settings at this pointer
+	 * @param context
+	 *            the settings of this diff
 	 * @throws JsonDiffException 
 	 * 
 	 * 
 	 */
-	private static void generateObjectDiffs(final DiffProcessor processor, final JsonPointer pointer,
-			final ObjectNode source, final ObjectNode target, Map<JsonPointer, ?> attributeKeyFields)
+	private static void generateObjectDiffs(final DiffHandler processor, final JsonPointer pointer,
+			final ObjectNode source, final ObjectNode target, final PointerTrie settings, final DiffContext context)
 			throws JsonDiffException {
-		final Set<String> firstFields = Sets.newTreeSet(Sets.newHashSet(source.fieldNames()));
-		final Set<String> secondFields = Sets.newTreeSet(Sets.newHashSet(target.fieldNames()));
+		final Set<String> firstFields = context.fieldNames(source);
+		final Set<String> secondFields = context.fieldNames(target);
 		// this for loop is for calculating removed elements
 
 		/*
 		 * This loop evaluates the Fields at source that are not in target Node
 		 */
 		for (final String field : Sets.difference(firstFields, secondFields)) {
+			if (settings.child(field).isIgnored())
+				continue;
 			// Element To Remove
 			JsonNode fieldValue = source.get(field);
 			if ((fieldValue.size() != 0)) {
@@ -493,6 +998,8 @@ public final class JsonDiff {
 		 * This loop evaluates the Fields at target that are not in source Node
 		 */
 		for (final String field : Sets.difference(secondFields, firstFields)) {
+			if (settings.child(field).isIgnored())
+				continue;
 			// ADD Element
 			JsonNode fieldValue = target.get(field);
 			if ((fieldValue.size() != 0)) {
@@ -519,9 +1026,41 @@ public final class JsonDiff {
 		/*
 		 * This loop evaluates the common elements in both nodes
 		 */
-		for (final String field : Sets.intersection(firstFields, secondFields)) {
+		final List<String> commonFields = Lists.newArrayList(Sets.intersection(firstFields, secondFields));
+		final NodeFingerprints fingerprints = processor.getFingerprints();
+		if (context.shouldFork(fingerprints, settings, source, target)) {
+			final int[] weights = new int[commonFields.size()];
+			PointerTrie fieldSettings;
+			for (int i = 0; i < weights.length; i++) {
+				fieldSettings = settings.child(commonFields.get(i));
+				weights[i] = fingerprints.size(source.get(commonFields.get(i)), fieldSettings)
+						+ fingerprints.size(target.get(commonFields.get(i)), fieldSettings);
+			}
+			final List<int[]> ranges = partition(weights, context.getForkThreshold());
+			if (ranges.size() > 1) {
+				final List<DiffTask> tasks = Lists.newArrayList();
+				for (final int[] range : ranges)
+					tasks.add(new DiffTask(fingerprints) {
+						@Override
+						void diff() throws JsonDiffException {
+							generateCommonFieldDiffs(log, pointer, source, target, commonFields.subList(range[0],
+									range[1]), settings, context);
+						}
+					});
+				runTasks(processor, tasks);
+				return;
+			}
+		}
+		generateCommonFieldDiffs(processor, pointer, source, target, commonFields, settings, context);
+	}
+
+	private static void generateCommonFieldDiffs(final DiffHandler processor, final JsonPointer pointer,
+			final JsonNode source, final JsonNode target, final List<String> fields, final PointerTrie settings,
+			final DiffContext context) throws JsonDiffException {
+		for (final String field : fields) {
 			// REPLACE OR COMMON Elements
-			generateDiffs(processor, pointer.append(field), source.get(field), target.get(field), attributeKeyFields);
+			generateDiffs(processor, pointer.append(field), source.get(field), target.get(field),
+					settings.child(field), context);
 		}
 	}
 
@@ -534,14 +1073,16 @@ public final class JsonDiff {
 	 *            old json
 	 * @param target
 	 *            new json
-	 * @param attributesKeyFields
-	 *            can be null but needed for denoting custom operations.
+	 * @param keyFieldValue
+	 *            the primary key field of array elements
+	 * @param context
+	 *            the settings of this diff
 	 * @throws JsonDiffException 
 	 * 
 	 */
-	private static void generateArrayDiffs(final DiffProcessor processor, final JsonPointer pointer,
-			final ArrayNode source, final ArrayNode target, final Map<JsonPointer, String> attributesKeyFields)
-			throws JsonDiffException {
+	private static void generateArrayDiffs(final DiffHandler processor, final JsonPointer pointer,
+			final ArrayNode source, final ArrayNode target, final String keyFieldValue, final PointerTrie settings,
+			final DiffContext context) throws JsonDiffException {
 
 		final int sourceSize = source.size();
 		final int targetSize = target.size();
@@ -558,53 +1099,74 @@ public final class JsonDiff {
 			}
 		} else {
 			// Few Added, Few Removed Elements
-			// Null check to Avoid null pointer exception to Map
-			if (attributesKeyFields.containsKey(pointer)) {
-
-				// Get the Appropriate Key From Map
-				String keyFieldValue = attributesKeyFields.get(pointer);
-
-				if (keyFieldValue == null) {
-					// This method is used to calculate Array Diff in case Key
-					// is Not present
-					generateArrayDiffForNullOrNoKey(processor, pointer, source, target);
-				} else {
-					// Array Object without Key Field
-					List<String> targetObjectList = new ArrayList<String>(targetSize);
-					List<String> objectToRemoveList = new LinkedList<String>();
-					// get all Primary Key values from target to a List
-					for (int j = 0; j < targetSize; j++) {
-						JsonNode targetObject = target.get(j);
-						if (targetObject != null && targetObject.has(keyFieldValue)
-								&& targetObject.get(keyFieldValue).isTextual()) {
-							targetObjectList.add(targetObject.get(keyFieldValue).asText());
-						} else {
-							throw new JsonDiffException(BUNDLE.getMessage("jsonDiff.PrimaryKeyMissing"));
-						}
+			// Index target Objects by their Primary Key value
+			final String[] targetKeys = new String[targetSize];
+			final Map<String, List<Integer>> targetIndices = Maps.newHashMapWithExpectedSize(targetSize);
+			final Set<String> matchedKeys = Sets.newHashSet();
+			List<Integer> indices;
+			for (int j = 0; j < targetSize; j++) {
+				JsonNode targetObject = target.get(j);
+				if (targetObject != null && targetObject.has(keyFieldValue)
+						&& targetObject.get(keyFieldValue).isTextual()) {
+					targetKeys[j] = targetObject.get(keyFieldValue).asText();
+					indices = targetIndices.get(targetKeys[j]);
+					if (indices == null) {
+						indices = new ArrayList<Integer>(1);
+						targetIndices.put(targetKeys[j], indices);
 					}
+					indices.add(j);
+				} else {
+					throw new JsonDiffException(BUNDLE.getMessage("jsonDiff.PrimaryKeyMissing"));
+				}
+			}
 
-					for (int j = 0; j < sourceSize; j++) {
-						// Comparing Each source Object with Target Objects
-						// //only Key Comparison
-						generateObjectInArrayDiffs(processor, pointer.append(j), source.get(j), target,
-								targetObjectList, keyFieldValue, objectToRemoveList, attributesKeyFields);
-					}
-					targetObjectList.removeAll(objectToRemoveList);
-					for (int i = 0; i < targetSize; i++) {
-						if (targetObjectList.contains(target.get(i).get(keyFieldValue).asText())) {
-							// After Evaluating all Now we do the remaining
-							// addition
-							processor.valueAdded(pointer.append("-"), target.get(i));
+			final NodeFingerprints fingerprints = processor.getFingerprints();
+			final List<int[]> ranges;
+			if (context.shouldFork(fingerprints, settings, source, target)) {
+				final int[] weights = new int[sourceSize];
+				for (int j = 0; j < sourceSize; j++)
+					weights[j] = 2 * fingerprints.size(source.get(j), settings.element(j));
+				ranges = partition(weights, context.getForkThreshold());
+			} else {
+				ranges = Collections.singletonList(new int[] { 0, sourceSize });
+			}
+			if (ranges.size() > 1) {
+				// Each task has its own set of matched keys, merged once all are done
+				final List<DiffTask> tasks = Lists.newArrayList();
+				final List<Set<String>> matchedKeysByTask = Lists.newArrayList();
+				for (final int[] range : ranges) {
+					final Set<String> taskMatchedKeys = Sets.newHashSet();
+					matchedKeysByTask.add(taskMatchedKeys);
+					tasks.add(new DiffTask(fingerprints) {
+						@Override
+						void diff() throws JsonDiffException {
+							for (int j = range[0]; j < range[1]; j++) {
+								context.checkCancelled();
+								generateObjectInArrayDiffs(log, pointer.append(j), source.get(j), target,
+										targetIndices, keyFieldValue, taskMatchedKeys, settings.element(j), context);
+							}
 						}
-					}
-					targetObjectList.clear();
+					});
 				}
+				runTasks(processor, tasks);
+				for (final Set<String> taskMatchedKeys : matchedKeysByTask)
+					matchedKeys.addAll(taskMatchedKeys);
 			} else {
-				// This Function is used to calculate Array Diff in case Key is
-				// Not present
-				generateArrayDiffForNullOrNoKey(processor, pointer, source, target);
+				for (int j = 0; j < sourceSize; j++) {
+					context.checkCancelled();
+					// Comparing Each source Object with Target Objects
+					// //only Key Comparison
+					generateObjectInArrayDiffs(processor, pointer.append(j), source.get(j), target,
+							targetIndices, keyFieldValue, matchedKeys, settings.element(j), context);
+				}
+			}
+			for (int i = 0; i < targetSize; i++) {
+				if (!matchedKeys.contains(targetKeys[i])) {
+					// After Evaluating all Now we do the remaining
+					// addition
+					processor.valueAdded(pointer.append("-"), target.get(i));
+				}
 			}
-
 		}
 	}
 
@@ -619,45 +1181,90 @@ public final class JsonDiff {
 	 *            old json
 	 * @param target
 	 *            new json
+	 * @param settings
+	 *            the diff settings at this pointer
 	 * 
 	 */
-	private static void generateArrayDiffForNullOrNoKey(final DiffProcessor processor, final JsonPointer pointer,
-			final ArrayNode source, final ArrayNode target) {
-		{
-			logger.debug("Key Field Not Available for Pointer at  : {}", pointer);
-			// Treat Whole Thing as an Key itself
-
-			List<JsonNode> toAddList = Lists.newArrayList(target.iterator());
-			List<JsonNode> toRemoveList = new ArrayList<JsonNode>();
-			//
-			// for (JsonNode eachTargetElement : target) {
-			// // add All Target Elements to TargetList
-			// targetList.add(eachTargetElement);
-			// }
-			for (JsonNode eachSourceElement : source) {
-				if (toAddList.contains(eachSourceElement)) {
-					// if source contains elements that are present in
-					// targetList then remove from targetList i.e. at the end of
-					// for-loop we will get list of added object in targetList
-					toAddList.remove(eachSourceElement);
+	private static void generateArrayDiffForNullOrNoKey(final DiffHandler processor, final JsonPointer pointer,
+			final ArrayNode source, final ArrayNode target, final PointerTrie settings) {
+		logger.debug("Key Field Not Available for Pointer at  : {}", pointer);
+		// Treat Whole Thing as an Key itself
 
-				} else {
-					// if source contains elements that are not in targetList
-					// add them to sourceList i.e list of Deleted String
-					toRemoveList.add(eachSourceElement);
-				}
+		/*
+		 * Both arrays are compared as multisets: a value present s times in
+		 * the source and t times in the target is matched min(s, t) times.
+		 * When s > t, every occurrence in the source is removed; when t > s,
+		 * the occurrences in the target beyond the first s ones are added.
+		 * Elements are compared without what the settings ignore within them;
+		 * ignored elements are left out altogether.
+		 */
+		final JsonNode[] sourceViews = prunedElements(source, settings);
+		final JsonNode[] targetViews = prunedElements(target, settings);
+		final Multiset<JsonNode> sourceElements = HashMultiset.create();
+		final Multiset<JsonNode> targetElements = HashMultiset.create();
+		for (final JsonNode view : sourceViews)
+			if (view != null)
+				sourceElements.add(view);
+		for (final JsonNode view : targetViews)
+			if (view != null)
+				targetElements.add(view);
+
+		// Remove elements which occur more often in source than in target
+		JsonNode view;
+		for (int k = 0; k < source.size(); k++) {
+			view = sourceViews[k];
+			if (view != null && sourceElements.count(view) > targetElements.count(view)) {
+				processor.arrayObjectValueRemoved(pointer.append(k), source.get(k));
 			}
-			// Remove String that is in SourceList
-			for (int k = 0; k < source.size(); k++) {
-				if (toRemoveList.contains(source.get(k))) {
-					processor.arrayObjectValueRemoved(pointer.append(k), source.get(k));
-				}
+		}
+		// Add target elements left over once source elements are matched
+		for (int k = 0; k < target.size(); k++) {
+			view = targetViews[k];
+			if (view != null && !sourceElements.remove(view)) {
+				processor.valueAdded(pointer.append("-"), target.get(k));
 			}
-			// Add Strings that are in target List
-			for (JsonNode eachAdd : toAddList) {
-				processor.valueAdded(pointer.append("-"), eachAdd);
+		}
+	}
+
+	/*
+	 * Return the elements of an array as they are compared: null for ignored
+	 * elements, copies without their ignored values for elements with ignored
+	 * descendants, and the elements themselves otherwise
+	 */
+	private static JsonNode[] prunedElements(final ArrayNode array, final PointerTrie settings) {
+		final JsonNode[] ret = new JsonNode[array.size()];
+		PointerTrie elementSettings;
+		for (int k = 0; k < ret.length; k++) {
+			elementSettings = settings.element(k);
+			if (!elementSettings.isIgnored())
+				ret[k] = prune(array.get(k), elementSettings);
+		}
+		return ret;
+	}
+
+	private static JsonNode prune(final JsonNode node, final PointerTrie settings) {
+		if (!settings.hasIgnoredDescendants() || !node.isContainerNode())
+			return node;
+		PointerTrie childSettings;
+		if (node.isArray()) {
+			final ArrayNode ret = FACTORY.arrayNode();
+			for (int i = 0; i < node.size(); i++) {
+				childSettings = settings.element(i);
+				if (!childSettings.isIgnored())
+					ret.add(prune(node.get(i), childSettings));
 			}
+			return ret;
+		}
+		final ObjectNode ret = FACTORY.objectNode();
+		final Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+		Map.Entry<String, JsonNode> field;
+		while (fields.hasNext()) {
+			field = fields.next();
+			childSettings = settings.child(field.getKey());
+			if (!childSettings.isIgnored())
+				ret.put(field.getKey(), prune(field.getValue(), childSettings));
 		}
+		return ret;
 	}
 
 	/**
@@ -671,11 +1278,11 @@ public final class JsonDiff {
 	 *            old json
 	 * @param target
 	 *            new json
-	 * @param targetObjectList
+	 * @param targetIndices
+	 *            indices of target objects, by Primary Key value
 	 * @param keyFieldValue
-	 * @param objectToRemoveList
-	 * @param attributesKeyFields
-	 *            can be null but needed for denoting custom operations.
+	 * @param matchedKeys
+	 *            Primary Key values found in both source and target
 	 * 
 	 * @return
 	 * 
@@ -683,26 +1290,27 @@ public final class JsonDiff {
 	 * 
 	 *
 	 */
-	private static void generateObjectInArrayDiffs(final DiffProcessor processor, JsonPointer pointer,
-			final JsonNode source, final JsonNode target, final List<String> targetObjectList,
-			final String keyFieldValue, final List<String> objectToRemoveList,
-			final Map<JsonPointer, String> attributesKeyFields) throws JsonDiffException {
-		int targetSize = target.size();
+	private static void generateObjectInArrayDiffs(final DiffHandler processor, JsonPointer pointer,
+			final JsonNode source, final JsonNode target, final Map<String, List<Integer>> targetIndices,
+			final String keyFieldValue, final Set<String> matchedKeys, final PointerTrie settings,
+			final DiffContext context) throws JsonDiffException {
 		// check weather the key field matches
 		JsonNode sourceObject = source.get(keyFieldValue);
 		if(sourceObject == null || sourceObject.isContainerNode()){
 			throw new JsonDiffException(BUNDLE.getMessage("jsonDiff.PrimaryKeyMissing"));
 		}else{
-			if (targetObjectList.contains(sourceObject.asText())) {
+			final List<Integer> indices = targetIndices.get(sourceObject.asText());
+			if (indices != null) {
 				// Key Matched
-				objectToRemoveList.add(sourceObject.asText());
+				matchedKeys.add(sourceObject.asText());
 				// check if internal Field Matches
-				for (int i = 0; i < targetSize; i++) {
-					if (target.get(i).get(keyFieldValue).equals(sourceObject)) {
-						if (!target.get(i).equals(source)) {
+				for (final int i : indices) {
+					final JsonNode targetObject = target.get(i);
+					if (targetObject.get(keyFieldValue).equals(sourceObject)) {
+						if (!sameValues(processor.getFingerprints(), settings, source, targetObject, true)) {
 							// If Content at Source and Target Does not Matches
 							// Sending Data For Replace Operation
-							generateCustomDiffs(processor, pointer, source, target.get(i));
+							generateCustomDiffs(processor, pointer, source, targetObject, settings, context);
 						}
 					}
 				}
@@ -726,20 +1334,80 @@ public final class JsonDiff {
 	 *            new json
 	 * 
 	 */
-	private static void generateCustomDiffs(final DiffProcessor processor, JsonPointer pointer, final JsonNode source,
-			final JsonNode target) {
-		final Set<String> sourceFields = Sets.newTreeSet(Sets.newHashSet(source.fieldNames()));
-		final Set<String> targetFields = Sets.newTreeSet(Sets.newHashSet(target.fieldNames()));
+	private static void generateCustomDiffs(final DiffHandler processor, JsonPointer pointer, final JsonNode source,
+			final JsonNode target, final PointerTrie settings, final DiffContext context) throws JsonDiffException {
+		final Set<String> sourceFields = context.fieldNames(source);
+		final Set<String> targetFields = context.fieldNames(target);
+		final NodeFingerprints fingerprints = processor.getFingerprints();
+		PointerTrie fieldSettings;
+		JsonNode sourceValue;
+		JsonNode targetValue;
 		for (String field : sourceFields) {
-			if (!(source.get(field).equals(target.get(field)))) {
-				processor.arrayObjectValueReplaced(pointer.append(field), source, target.get(field));
+			fieldSettings = settings.child(field);
+			if (fieldSettings.isIgnored())
+				continue;
+			sourceValue = source.get(field);
+			targetValue = target.get(field);
+			if ((context.isDeepElementDiff() || fieldSettings.hasSettingsWithin()) && targetValue != null
+					&& sourceValue.isContainerNode() && sourceValue.getNodeType() == targetValue.getNodeType()) {
+				// Containers on both sides are diffed like any other value,
+				// always so if the settings reach into them
+				generateDiffs(processor, pointer.append(field), sourceValue, targetValue, fieldSettings, context);
+			} else if (!sameValues(fingerprints, fieldSettings, sourceValue, targetValue, true)) {
+				processor.arrayObjectValueReplaced(pointer.append(field), source, targetValue);
 			}
 		}
 		for (final String field : Sets.difference(targetFields, sourceFields)) {
+			if (settings.child(field).isIgnored())
+				continue;
 			processor.arrayObjectValueReplaced(pointer.append(field), source, target.get(field));
 		}
 	}
 
+	/*
+	 * Compare two values, leaving out what the settings ignore; values are
+	 * only hashed where nothing within them is ignored. Values are compared by
+	 * equality if exact is true, by equivalence otherwise.
+	 */
+	private static boolean sameValues(final NodeFingerprints fingerprints, final PointerTrie settings,
+			final JsonNode source, final JsonNode target, final boolean exact) {
+		if (target == null)
+			return false;
+		if (!settings.hasIgnoredDescendants() || source.getNodeType() != target.getNodeType()
+				|| !source.isContainerNode())
+			return exact ? fingerprints.equal(source, target) : fingerprints.equivalent(source, target);
+
+		PointerTrie childSettings;
+		if (source.isArray()) {
+			if (source.size() != target.size())
+				return false;
+			for (int i = 0; i < source.size(); i++) {
+				childSettings = settings.element(i);
+				if (!childSettings.isIgnored()
+						&& !sameValues(fingerprints, childSettings, source.get(i), target.get(i), exact))
+					return false;
+			}
+			return true;
+		}
+
+		String field;
+		final Iterator<String> sourceFields = source.fieldNames();
+		while (sourceFields.hasNext()) {
+			field = sourceFields.next();
+			childSettings = settings.child(field);
+			if (!childSettings.isIgnored()
+					&& !sameValues(fingerprints, childSettings, source.get(field), target.get(field), exact))
+				return false;
+		}
+		final Iterator<String> targetFields = target.fieldNames();
+		while (targetFields.hasNext()) {
+			field = targetFields.next();
+			if (!source.has(field) && !settings.child(field).isIgnored())
+				return false;
+		}
+		return true;
+	}
+
 	/**
 	 * This method is to Find difference between Array Node
 	 * 
@@ -749,79 +1417,155 @@ public final class JsonDiff {
 	 *            old json
 	 * @param target
 	 *            new json
-	 * @param attributesKeyFields
-	 *            can be null but needed for denoting custom operations.
+	 * @param keyFields
+	 *            the sorted primary key fields of array elements
+	 * @param context
+	 *            the settings of this diff
 	 * @throws JsonDiffException 
 	 * 
 	 */
-	private static void generateArrayDiffs(final DiffProcessor differenceProcessor, JsonPointer pathPointer,
-			ArrayNode oldJson, ArrayNode newJson,final HashMap<JsonPointer, Set<String>> primaryKeyMap)
-			throws JsonDiffException {
+	private static void generateArrayDiffs(final DiffHandler differenceProcessor, final JsonPointer pathPointer,
+			final ArrayNode oldJson, final ArrayNode newJson, final String[] keyFields, final PointerTrie settings,
+			final DiffContext context) throws JsonDiffException {
 
-		Set<String> primaryKeys = pathValueResolver(primaryKeyMap, pathPointer);
+		logger.info("Map was given so Calculating Array Difference in the form of Add and Remove and Replace");
+		Map<CompositeKey, Integer> oldIndexKeyValueMap = context.keyIndex(oldJson, keyFields);
 
-		if (primaryKeys == null || primaryKeys.isEmpty()) {
-			logger.info("As No Map was given so Calculating Array Difference in the form of Add and Remove");
-			generateArrayDiffForNullOrNoKey(differenceProcessor, pathPointer, oldJson, newJson);
+		Map<CompositeKey, Integer> newIndexKeyValueMap = context.keyIndex(newJson, keyFields);
 
-		} else {
-			logger.info("Map was given so Calculating Array Difference in the form of Add and Remove and Replace");
-			Map<Map<String, JsonNode>, Integer> oldIndexKeyValueMap = generateMapOfKeysValues(oldJson, primaryKeys);
+		Set<CompositeKey> oldKeyValueSet = oldIndexKeyValueMap.keySet();
 
-			Map<Map<String, JsonNode>, Integer> newIndexKeyValueMap = generateMapOfKeysValues(newJson, primaryKeys);
+		Set<CompositeKey> newKeyValueSet = newIndexKeyValueMap.keySet();
 
-			Set<Map<String, JsonNode>> oldKeyValueSet = oldIndexKeyValueMap.keySet();
+		for (CompositeKey removeObject : Sets.difference(oldKeyValueSet, newKeyValueSet)) {
+			int oldIndex = oldIndexKeyValueMap.get(removeObject);
+			differenceProcessor.arrayObjectValueRemoved(pathPointer.append(oldIndex), oldJson.get(oldIndex));
+		}
 
-			Set<Map<String, JsonNode>> newKeyValueSet = newIndexKeyValueMap.keySet();
+		for (CompositeKey addObject : Sets.difference(newKeyValueSet, oldKeyValueSet)) {
+			int newIndex = newIndexKeyValueMap.get(addObject);
+			differenceProcessor.valueAdded(pathPointer.append("-"), newJson.get(newIndex));
+		}
 
-			for (Map<String, JsonNode> removeObject : Sets.difference(oldKeyValueSet, newKeyValueSet)) {
-				int oldIndex = oldIndexKeyValueMap.get(removeObject);
-				differenceProcessor.arrayObjectValueRemoved(pathPointer.append(oldIndex), oldJson.get(oldIndex));
-			}
+		final List<CompositeKey> commonKeys = Lists.newArrayList(Sets.intersection(newKeyValueSet, oldKeyValueSet));
+		final int[] oldIndices = new int[commonKeys.size()];
+		final int[] newIndices = new int[commonKeys.size()];
+		for (int i = 0; i < oldIndices.length; i++) {
+			oldIndices[i] = oldIndexKeyValueMap.get(commonKeys.get(i));
+			newIndices[i] = newIndexKeyValueMap.get(commonKeys.get(i));
+		}
 
-			for (Map<String, JsonNode> addObject : Sets.difference(newKeyValueSet, oldKeyValueSet)) {
-				int newIndex = newIndexKeyValueMap.get(addObject);
-				differenceProcessor.valueAdded(pathPointer.append("-"), newJson.get(newIndex));
+		final NodeFingerprints fingerprints = differenceProcessor.getFingerprints();
+		if (context.shouldFork(fingerprints, settings, oldJson, newJson)) {
+			final int[] weights = new int[oldIndices.length];
+			for (int i = 0; i < weights.length; i++)
+				weights[i] = fingerprints.size(oldJson.get(oldIndices[i]), settings.element(oldIndices[i]))
+						+ fingerprints.size(newJson.get(newIndices[i]), settings.element(newIndices[i]));
+			final List<int[]> ranges = partition(weights, context.getForkThreshold());
+			if (ranges.size() > 1) {
+				final List<DiffTask> tasks = Lists.newArrayList();
+				for (final int[] range : ranges)
+					tasks.add(new DiffTask(fingerprints) {
+						@Override
+						void diff() throws JsonDiffException {
+							for (int i = range[0]; i < range[1]; i++) {
+								context.checkCancelled();
+								generateCustomDiffs(log, pathPointer.append(oldIndices[i]), oldJson.get(oldIndices[i]),
+										newJson.get(newIndices[i]), settings.element(oldIndices[i]), context);
+							}
+						}
+					});
+				runTasks(differenceProcessor, tasks);
+				return;
 			}
+		}
 
-			for (Map<String, JsonNode> replaceObject : Sets.intersection(newKeyValueSet, oldKeyValueSet)) {
+		for (int i = 0; i < oldIndices.length; i++) {
+			context.checkCancelled();
+			generateCustomDiffs(differenceProcessor, pathPointer.append(oldIndices[i]), oldJson.get(oldIndices[i]),
+					newJson.get(newIndices[i]), settings.element(oldIndices[i]), context);
+		}
+	}
+		
+	static Map<CompositeKey, Integer> generateMapOfKeysValues(ArrayNode json, String[] keyFields)
+			throws JsonDiffException {
+		Map<CompositeKey, Integer> indexKeyValueMap = new HashMap<>();
 
-				int oldIndex = oldIndexKeyValueMap.get(replaceObject);
-				int newIndex = newIndexKeyValueMap.get(replaceObject);
-				generateCustomDiffs(differenceProcessor, pathPointer.append(oldIndex), oldJson.get(oldIndex),
-						newJson.get(newIndex));
+		for (int i = 0; i < json.size(); i++) {
+			CompositeKey key = CompositeKey.of(keyFields, json.get(i));
+			if (key == null) {
+				// Primary keys are always expected to be present if the
+				// path is given in Map
+				throw new JsonDiffException(BUNDLE.getMessage("jsonDiff.PrimaryKeyMissing"));
 			}
+			indexKeyValueMap.put(key, i);
 		}
+		return indexKeyValueMap;
 	}
-		
-	private static Set<String> pathValueResolver(final Map<JsonPointer, Set<String>> primaryKeyMap, JsonPointer path) {
-		Set<String> primaryKeys = null; 
-		if (primaryKeyMap != null) {
-			primaryKeys = primaryKeyMap.get(path);
+
+	/*
+	 * Split a sequence of items into consecutive ranges, as [start, end[
+	 * pairs, so that the total weight of each range reaches the threshold;
+	 * only the last range may weigh less.
+	 */
+	private static List<int[]> partition(final int[] weights, final int threshold) {
+		final List<int[]> ret = Lists.newArrayList();
+		int start = 0;
+		int weight = 0;
+		for (int i = 0; i < weights.length; i++) {
+			weight += weights[i];
+			if (weight >= threshold) {
+				ret.add(new int[] { start, i + 1 });
+				start = i + 1;
+				weight = 0;
+			}
 		}
-		return primaryKeys;
+		if (start < weights.length)
+			ret.add(new int[] { start, weights.length });
+		return ret;
 	}
 
-	private static Map<Map<String, JsonNode>, Integer> generateMapOfKeysValues(ArrayNode json, Set<String> primaryKeys)
-			throws JsonDiffException {
-		Map<Map<String, JsonNode>, Integer> indexKeyValueMap = new HashMap<>();
+	/*
+	 * Run tasks in parallel, then report what they found in order
+	 */
+	private static void runTasks(final DiffHandler processor, final List<DiffTask> tasks) throws JsonDiffException {
+		ForkJoinTask.invokeAll(tasks);
+		for (final DiffTask task : tasks)
+			task.replay(processor);
+	}
 
-		for (int i = 0; i < json.size(); i++) {
-			JsonNode valueNode = json.get(i);
-			Map<String, JsonNode> keyValueMap = new HashMap<>();
-			for (String primaryKey : primaryKeys) {
-				JsonNode val = valueNode.get(primaryKey);
-				if (val != null) {
-					keyValueMap.put(primaryKey, val);
-				} else {
-					// Primary keys are always expected to be present if the
-					// path is given in Map
-					throw new JsonDiffException(BUNDLE.getMessage("jsonDiff.PrimaryKeyMissing"));
-				}
+	/**
+	 * Part of a custom diff, run as a fork/join task
+	 *
+	 * <p>What a task finds is recorded in its own log, to be replayed once all
+	 * tasks are done. The log has its own layer of fingerprints, which only
+	 * reads the fingerprints of the forking handler.</p>
+	 */
+	private abstract static class DiffTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		final DiffEventLog log;
+		private JsonDiffException failure;
+
+		DiffTask(final NodeFingerprints fingerprints) {
+			log = new DiffEventLog(new NodeFingerprints(fingerprints));
+		}
+
+		abstract void diff() throws JsonDiffException;
+
+		@Override
+		protected final void compute() {
+			try {
+				diff();
+			} catch (JsonDiffException e) {
+				failure = e;
 			}
-			indexKeyValueMap.put(keyValueMap, i);
 		}
-		return indexKeyValueMap;
+
+		void replay(final DiffHandler handler) throws JsonDiffException {
+			if (failure != null)
+				throw failure;
+			log.replay(handler);
+		}
 	}
-		
 }
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch.diff;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+import com.github.fge.jsonpatch.JsonDiffConstants;
+
+/**
+ * A {@link DiffSink} writing operations to a {@link JsonGenerator}
+ *
+ * <p>
+ * Each operation is written as a JSON object, exactly as the corresponding
+ * {@link com.github.fge.jsonpatch.JsonPatchOperation} would serialize itself.
+ * Writing the enclosing array, and flushing or closing the generator, is left
+ * to the caller; see also
+ * {@link JsonDiff#writePatch(DiffConfig, JsonNode, JsonNode, JsonGenerator)}.
+ * </p>
+ */
+public final class JsonGeneratorSink implements DiffSink {
+	private final JsonGenerator jgen;
+
+	/**
+	 * Constructor
+	 *
+	 * @param jgen the generator to write operations to
+	 */
+	public JsonGeneratorSink(final JsonGenerator jgen) {
+		this.jgen = jgen;
+	}
+
+	@Override
+	public void add(final JsonPointer path, final JsonNode value) throws IOException {
+		writeValueOperation(JsonDiffConstants.ADD, path, value);
+	}
+
+	@Override
+	public void remove(final JsonPointer path, final JsonNode oldValue) throws IOException {
+		jgen.writeStartObject();
+		jgen.writeStringField(JsonDiffConstants.OPERATION, JsonDiffConstants.REMOVE);
+		jgen.writeStringField(JsonDiffConstants.PATH, path.toString());
+		jgen.writeEndObject();
+	}
+
+	@Override
+	public void replace(final JsonPointer path, final JsonNode oldValue, final JsonNode value) throws IOException {
+		writeValueOperation(JsonDiffConstants.REPLACE, path, value);
+	}
+
+	@Override
+	public void move(final JsonPointer from, final JsonPointer path) throws IOException {
+		writeDualPathOperation("move", from, path);
+	}
+
+	@Override
+	public void copy(final JsonPointer from, final JsonPointer path) throws IOException {
+		writeDualPathOperation("copy", from, path);
+	}
+
+	@Override
+	public void arrayObjectRemove(final JsonPointer path, final JsonNode originalValue) throws IOException {
+		jgen.writeStartObject();
+		jgen.writeStringField(JsonDiffConstants.OPERATION, JsonDiffConstants.REMOVE);
+		jgen.writeStringField(JsonDiffConstants.PATH, path.toString());
+		jgen.writeFieldName(JsonDiffConstants.ORIGINAL_VALUE);
+		jgen.writeTree(originalValue);
+		jgen.writeEndObject();
+	}
+
+	@Override
+	public void arrayObjectReplace(final JsonPointer path, final JsonNode originalValue, final JsonNode value)
+			throws IOException {
+		jgen.writeStartObject();
+		jgen.writeStringField(JsonDiffConstants.OPERATION, JsonDiffConstants.REPLACE);
+		jgen.writeStringField(JsonDiffConstants.PATH, path.toString());
+		jgen.writeFieldName(JsonDiffConstants.VALUE);
+		jgen.writeTree(value);
+		jgen.writeFieldName(JsonDiffConstants.ORIGINAL_VALUE);
+		jgen.writeTree(originalValue);
+		jgen.writeEndObject();
+	}
+
+	private void writeValueOperation(final String op, final JsonPointer path, final JsonNode value)
+			throws IOException {
+		jgen.writeStartObject();
+		jgen.writeStringField(JsonDiffConstants.OPERATION, op);
+		jgen.writeStringField(JsonDiffConstants.PATH, path.toString());
+		jgen.writeFieldName(JsonDiffConstants.VALUE);
+		jgen.writeTree(value);
+		jgen.writeEndObject();
+	}
+
+	private void writeDualPathOperation(final String op, final JsonPointer from, final JsonPointer path)
+			throws IOException {
+		jgen.writeStartObject();
+		jgen.writeStringField(JsonDiffConstants.OPERATION, op);
+		jgen.writeStringField(JsonDiffConstants.PATH, path.toString());
+		jgen.writeStringField("from", from.toString());
+		jgen.writeEndObject();
+	}
+}
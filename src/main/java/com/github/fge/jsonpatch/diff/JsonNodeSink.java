@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch.diff;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Iterator;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+import com.github.fge.jsonpatch.JsonDiffConstants;
+
+/**
+ * A {@link DiffSink} building a patch as a {@link JsonNode}
+ *
+ * <p>
+ * The result is the same as serializing the equivalent {@link
+ * com.github.fge.jsonpatch.JsonPatch} and reading it back with a mapper from
+ * {@link JacksonUtils#newMapper()}, without going through text: values are
+ * copied, and numbers are converted to the node types reading their textual
+ * form would produce (for instance, floating point numbers are read as
+ * decimals).
+ * </p>
+ */
+final class JsonNodeSink implements DiffSink {
+	private static final JsonNodeFactory FACTORY = JacksonUtils.nodeFactory();
+	private static final ObjectMapper MAPPER = JacksonUtils.newMapper();
+
+	private final ArrayNode patch = FACTORY.arrayNode();
+
+	@Override
+	public void add(final JsonPointer path, final JsonNode value) throws IOException {
+		addValueOperation(JsonDiffConstants.ADD, path, value);
+	}
+
+	@Override
+	public void remove(final JsonPointer path, final JsonNode oldValue) {
+		addOperation(JsonDiffConstants.REMOVE, path);
+	}
+
+	@Override
+	public void replace(final JsonPointer path, final JsonNode oldValue, final JsonNode value) throws IOException {
+		addValueOperation(JsonDiffConstants.REPLACE, path, value);
+	}
+
+	@Override
+	public void move(final JsonPointer from, final JsonPointer path) {
+		addOperation("move", path).put("from", from.toString());
+	}
+
+	@Override
+	public void copy(final JsonPointer from, final JsonPointer path) {
+		addOperation("copy", path).put("from", from.toString());
+	}
+
+	@Override
+	public void arrayObjectRemove(final JsonPointer path, final JsonNode originalValue) throws IOException {
+		addOperation(JsonDiffConstants.REMOVE, path).put(JsonDiffConstants.ORIGINAL_VALUE, copyOf(originalValue));
+	}
+
+	@Override
+	public void arrayObjectReplace(final JsonPointer path, final JsonNode originalValue, final JsonNode value)
+			throws IOException {
+		final ObjectNode op = addOperation(JsonDiffConstants.REPLACE, path);
+		op.put(JsonDiffConstants.VALUE, copyOf(value));
+		op.put(JsonDiffConstants.ORIGINAL_VALUE, copyOf(originalValue));
+	}
+
+	/**
+	 * Return the patch built so far
+	 *
+	 * @return the patch, as an array of operations
+	 */
+	ArrayNode getPatch() {
+		return patch;
+	}
+
+	private void addValueOperation(final String op, final JsonPointer path, final JsonNode value)
+			throws IOException {
+		addOperation(op, path).put(JsonDiffConstants.VALUE, copyOf(value));
+	}
+
+	private ObjectNode addOperation(final String op, final JsonPointer path) {
+		final ObjectNode ret = patch.addObject();
+		ret.put(JsonDiffConstants.OPERATION, op);
+		ret.put(JsonDiffConstants.PATH, path.toString());
+		return ret;
+	}
+
+	/*
+	 * Copy a value as it would be read back from its serialized form. Value
+	 * nodes are immutable, and are reused whenever reading them back would
+	 * produce an equal node of the same type. A missing value is written, and
+	 * read back, as null.
+	 */
+	private static JsonNode copyOf(final JsonNode node) throws IOException {
+		if (node == null)
+			return FACTORY.nullNode();
+		if (node.isObject()) {
+			final ObjectNode ret = FACTORY.objectNode();
+			final Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+			Map.Entry<String, JsonNode> field;
+			while (fields.hasNext()) {
+				field = fields.next();
+				ret.put(field.getKey(), copyOf(field.getValue()));
+			}
+			return ret;
+		}
+		if (node.isArray()) {
+			final ArrayNode ret = FACTORY.arrayNode();
+			for (final JsonNode element : node)
+				ret.add(copyOf(element));
+			return ret;
+		}
+		if (node.isIntegralNumber())
+			return node.isInt() ? node : integralNode(node.bigIntegerValue());
+		if (node.isBigDecimal())
+			return numberNode(node.decimalValue().toPlainString());
+		if (node.isFloatingPointNumber()) {
+			if (Double.isNaN(node.doubleValue()) || Double.isInfinite(node.doubleValue()))
+				return FACTORY.textNode(node.asText());
+			return numberNode(node.asText());
+		}
+		if (node.isBinary())
+			return FACTORY.textNode(node.asText());
+		if (node.isPojo())
+			return MAPPER.readTree(MAPPER.writeValueAsString(node));
+		return node;
+	}
+
+	/*
+	 * Integral values are read as the smallest of int, long and big integer
+	 * they fit in
+	 */
+	private static JsonNode integralNode(final BigInteger value) {
+		if (value.bitLength() < Integer.SIZE)
+			return FACTORY.numberNode(value.intValue());
+		if (value.bitLength() < Long.SIZE)
+			return FACTORY.numberNode(value.longValue());
+		return FACTORY.numberNode(value);
+	}
+
+	/*
+	 * A number is read as a decimal if its textual form has a fraction or an
+	 * exponent, and as an integral value otherwise
+	 */
+	private static JsonNode numberNode(final String text) {
+		for (int i = 0; i < text.length(); i++)
+			switch (text.charAt(i)) {
+			case '.':
+			case 'e':
+			case 'E':
+				return FACTORY.numberNode(new BigDecimal(text));
+			default:
+			}
+		return integralNode(new BigInteger(text));
+	}
+}
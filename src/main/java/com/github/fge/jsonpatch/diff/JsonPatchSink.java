@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch.diff;
+
+import java.util.List;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+import com.github.fge.jsonpatch.AddOperation;
+import com.github.fge.jsonpatch.ArrayObjectRemoveOperation;
+import com.github.fge.jsonpatch.ArrayObjectReplaceOperation;
+import com.github.fge.jsonpatch.CopyOperation;
+import com.github.fge.jsonpatch.JsonPatch;
+import com.github.fge.jsonpatch.JsonPatchOperation;
+import com.github.fge.jsonpatch.MoveOperation;
+import com.github.fge.jsonpatch.RemoveOperation;
+import com.github.fge.jsonpatch.ReplaceOperation;
+import com.google.common.collect.Lists;
+
+/**
+ * A {@link DiffSink} collecting operations into a {@link JsonPatch}
+ */
+public final class JsonPatchSink implements DiffSink {
+	private final List<JsonPatchOperation> operations = Lists.newArrayList();
+
+	@Override
+	public void add(final JsonPointer path, final JsonNode value) {
+		operations.add(new AddOperation(path, value));
+	}
+
+	@Override
+	public void remove(final JsonPointer path, final JsonNode oldValue) {
+		operations.add(new RemoveOperation(path));
+	}
+
+	@Override
+	public void replace(final JsonPointer path, final JsonNode oldValue, final JsonNode value) {
+		operations.add(new ReplaceOperation(path, value));
+	}
+
+	@Override
+	public void move(final JsonPointer from, final JsonPointer path) {
+		operations.add(new MoveOperation(from, path));
+	}
+
+	@Override
+	public void copy(final JsonPointer from, final JsonPointer path) {
+		operations.add(new CopyOperation(from, path));
+	}
+
+	@Override
+	public void arrayObjectRemove(final JsonPointer path, final JsonNode originalValue) {
+		operations.add(new ArrayObjectRemoveOperation(path, originalValue));
+	}
+
+	@Override
+	public void arrayObjectReplace(final JsonPointer path, final JsonNode originalValue, final JsonNode value) {
+		operations.add(new ArrayObjectReplaceOperation(path, originalValue, value));
+	}
+
+	/**
+	 * Return a patch made of all operations received so far
+	 *
+	 * @return the patch
+	 */
+	public JsonPatch getPatch() {
+		return new JsonPatch(Lists.newArrayList(operations));
+	}
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch.diff;
+
+import java.util.List;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.collect.Lists;
+
+/**
+ * Longest common subsequence of the elements of two arrays
+ *
+ * <p>
+ * This uses the linear space variant of Myers' O(ND) algorithm: common
+ * prefixes and suffixes are trimmed, then both arrays are split at the middle
+ * of an optimal edit path (the "middle snake"), and both halves are processed
+ * recursively. Elements are compared with {@link
+ * NodeFingerprints#equivalent(JsonNode, JsonNode)}.
+ * </p>
+ *
+ * <p>The bisection is adapted from Neil Fraser's diff-match-patch.</p>
+ */
+final class LongestCommonSubsequence {
+	private final NodeFingerprints fingerprints;
+	private final JsonNode source;
+	private final JsonNode target;
+	private final int[] sourceHashes;
+	private final int[] targetHashes;
+
+	private final List<int[]> matches = Lists.newArrayList();
+
+	private LongestCommonSubsequence(final NodeFingerprints fingerprints, final JsonNode source,
+			final JsonNode target) {
+		this.fingerprints = fingerprints;
+		this.source = source;
+		this.target = target;
+		sourceHashes = hashes(fingerprints, source);
+		targetHashes = hashes(fingerprints, target);
+	}
+
+	/**
+	 * Compute a longest common subsequence of two arrays
+	 *
+	 * @param fingerprints the fingerprints of elements
+	 * @param source the source array
+	 * @param target the target array
+	 * @return the indices of matched elements, as {source, target} pairs, in
+	 *         ascending order
+	 */
+	static List<int[]> of(final NodeFingerprints fingerprints, final JsonNode source, final JsonNode target) {
+		final LongestCommonSubsequence lcs = new LongestCommonSubsequence(fingerprints, source, target);
+		lcs.compute(0, source.size(), 0, target.size());
+		return lcs.matches;
+	}
+
+	private void compute(final int sourceStart, final int sourceEnd, final int targetStart, final int targetEnd) {
+		int sourceLow = sourceStart;
+		int targetLow = targetStart;
+		while (sourceLow < sourceEnd && targetLow < targetEnd && equal(sourceLow, targetLow)) {
+			matches.add(new int[] { sourceLow, targetLow });
+			sourceLow++;
+			targetLow++;
+		}
+
+		int sourceHigh = sourceEnd;
+		int targetHigh = targetEnd;
+		while (sourceHigh > sourceLow && targetHigh > targetLow && equal(sourceHigh - 1, targetHigh - 1)) {
+			sourceHigh--;
+			targetHigh--;
+		}
+
+		if (sourceLow < sourceHigh && targetLow < targetHigh) {
+			if (sourceHigh - sourceLow == 1 || targetHigh - targetLow == 1)
+				matchSingle(sourceLow, sourceHigh, targetLow, targetHigh);
+			else
+				bisect(sourceLow, sourceHigh, targetLow, targetHigh);
+		}
+
+		for (int i = 0; i < sourceEnd - sourceHigh; i++)
+			matches.add(new int[] { sourceHigh + i, targetHigh + i });
+	}
+
+	/*
+	 * One of the ranges has a single element, which differs from the first
+	 * and last elements of the other range
+	 */
+	private void matchSingle(final int sourceLow, final int sourceHigh, final int targetLow, final int targetHigh) {
+		if (sourceHigh - sourceLow == 1) {
+			for (int j = targetLow; j < targetHigh; j++)
+				if (equal(sourceLow, j)) {
+					matches.add(new int[] { sourceLow, j });
+					return;
+				}
+			return;
+		}
+		for (int i = sourceLow; i < sourceHigh; i++)
+			if (equal(i, targetLow)) {
+				matches.add(new int[] { i, targetLow });
+				return;
+			}
+	}
+
+	/*
+	 * Find the middle snake of both ranges, which both have at least two
+	 * elements, and recurse on both sides of it
+	 */
+	private void bisect(final int sourceLow, final int sourceHigh, final int targetLow, final int targetHigh) {
+		final int n = sourceHigh - sourceLow;
+		final int m = targetHigh - targetLow;
+		final int maxD = (n + m + 1) / 2;
+		final int offset = maxD;
+		final int length = 2 * maxD;
+		final int[] forward = new int[length];
+		final int[] backward = new int[length];
+		for (int i = 0; i < length; i++) {
+			forward[i] = -1;
+			backward[i] = -1;
+		}
+		forward[offset + 1] = 0;
+		backward[offset + 1] = 0;
+		final int delta = n - m;
+		// If the total number of elements is odd, the forward path collides
+		// with the reverse path
+		final boolean front = delta % 2 != 0;
+		// Offsets for start and end of k loops, which prevent mapping of
+		// space beyond the grid
+		int k1start = 0;
+		int k1end = 0;
+		int k2start = 0;
+		int k2end = 0;
+		int x1, y1, x2, y2, k1Offset, k2Offset;
+		for (int d = 0; d < maxD; d++) {
+			for (int k1 = -d + k1start; k1 <= d - k1end; k1 += 2) {
+				k1Offset = offset + k1;
+				if (k1 == -d || k1 != d && forward[k1Offset - 1] < forward[k1Offset + 1])
+					x1 = forward[k1Offset + 1];
+				else
+					x1 = forward[k1Offset - 1] + 1;
+				y1 = x1 - k1;
+				while (x1 < n && y1 < m && equal(sourceLow + x1, targetLow + y1)) {
+					x1++;
+					y1++;
+				}
+				forward[k1Offset] = x1;
+				if (x1 > n) {
+					k1end += 2;
+				} else if (y1 > m) {
+					k1start += 2;
+				} else if (front) {
+					k2Offset = offset + delta - k1;
+					if (k2Offset >= 0 && k2Offset < length && backward[k2Offset] != -1
+							&& x1 >= n - backward[k2Offset]) {
+						split(sourceLow, sourceHigh, targetLow, targetHigh, x1, y1);
+						return;
+					}
+				}
+			}
+			for (int k2 = -d + k2start; k2 <= d - k2end; k2 += 2) {
+				k2Offset = offset + k2;
+				if (k2 == -d || k2 != d && backward[k2Offset - 1] < backward[k2Offset + 1])
+					x2 = backward[k2Offset + 1];
+				else
+					x2 = backward[k2Offset - 1] + 1;
+				y2 = x2 - k2;
+				while (x2 < n && y2 < m && equal(sourceHigh - x2 - 1, targetHigh - y2 - 1)) {
+					x2++;
+					y2++;
+				}
+				backward[k2Offset] = x2;
+				if (x2 > n) {
+					k2end += 2;
+				} else if (y2 > m) {
+					k2start += 2;
+				} else if (!front) {
+					k1Offset = offset + delta - k2;
+					if (k1Offset >= 0 && k1Offset < length && forward[k1Offset] != -1) {
+						x1 = forward[k1Offset];
+						y1 = offset + x1 - k1Offset;
+						if (x1 >= n - x2) {
+							split(sourceLow, sourceHigh, targetLow, targetHigh, x1, y1);
+							return;
+						}
+					}
+				}
+			}
+		}
+		// No common element at all
+	}
+
+	private void split(final int sourceLow, final int sourceHigh, final int targetLow, final int targetHigh,
+			final int x, final int y) {
+		compute(sourceLow, sourceLow + x, targetLow, targetLow + y);
+		compute(sourceLow + x, sourceHigh, targetLow + y, targetHigh);
+	}
+
+	private boolean equal(final int sourceIndex, final int targetIndex) {
+		return sourceHashes[sourceIndex] == targetHashes[targetIndex]
+				&& fingerprints.equivalent(source.get(sourceIndex), target.get(targetIndex));
+	}
+
+	private static int[] hashes(final NodeFingerprints fingerprints, final JsonNode array) {
+		final int[] ret = new int[array.size()];
+		for (int i = 0; i < ret.length; i++)
+			ret[i] = fingerprints.get(array.get(i));
+		return ret;
+	}
+}
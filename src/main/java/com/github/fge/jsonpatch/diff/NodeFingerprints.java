@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch.diff;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jackson.JsonNumEquals;
+import com.google.common.base.Equivalence;
+
+/**
+ * Content hashes of JSON values, cached per container node
+ *
+ * <p>
+ * The fingerprint of a container is computed bottom-up from the fingerprints
+ * of its children, and is remembered (by node identity) for every container
+ * met along the way. Two nodes equivalent according to {@link JsonNumEquals}
+ * always have the same fingerprint: object members are combined regardless of
+ * their order, and numbers are hashed by value, all zeros alike. As a
+ * consequence, two nodes with different fingerprints can be told apart in
+ * constant time; a full comparison is only needed when fingerprints match.
+ * </p>
+ *
+ * <p>
+ * {@link JsonNumEquals#hash(Object)} cannot be used for this purpose: it
+ * depends on the order of object members whereas equivalence does not.
+ * </p>
+ *
+ * <p>
+ * The number of nodes in each container is also remembered, as a measure of
+ * the cost of diffing it.
+ * </p>
+ *
+ * <p>
+ * Instances expect the nodes they see not to be modified. They are not thread
+ * safe while fingerprints are being computed; once the fingerprints of the
+ * roots of all values have been obtained, nothing is computed anymore and an
+ * instance can be shared between threads.
+ * </p>
+ *
+ * <p>
+ * An instance can be layered on top of another one which is not modified
+ * anymore: it then reuses what the other one, and the instances it is itself
+ * layered on, have computed, without ever modifying them. Parallel diffs give
+ * each task its own layer, so that tasks never write to shared instances.
+ * </p>
+ */
+final class NodeFingerprints {
+	private static final Equivalence<JsonNode> EQUIVALENCE = JsonNumEquals.getInstance();
+
+	private static final int ARRAY_SEED = 0x2545F491;
+	private static final int OBJECT_SEED = 0x6A09E667;
+
+	private final NodeFingerprints base;
+	private final Map<JsonNode, Container> containers = new IdentityHashMap<JsonNode, Container>();
+
+	NodeFingerprints() {
+		base = null;
+	}
+
+	/**
+	 * Build fingerprints on top of read only ones
+	 *
+	 * @param base the fingerprints to reuse
+	 */
+	NodeFingerprints(final NodeFingerprints base) {
+		this.base = base;
+	}
+
+	/**
+	 * Return the fingerprint of a node
+	 *
+	 * @param node the node
+	 * @return the fingerprint
+	 */
+	int get(final JsonNode node) {
+		if (node.isNumber())
+			return numberHash(node.doubleValue());
+		if (!node.isContainerNode())
+			return node.hashCode();
+
+		return container(node).fingerprint;
+	}
+
+	/**
+	 * Return the number of nodes in a value, including the value itself
+	 *
+	 * @param node the node
+	 * @return the number of nodes
+	 */
+	int size(final JsonNode node) {
+		return node.isContainerNode() ? container(node).size : 1;
+	}
+
+	/**
+	 * Return the number of nodes in a value which some settings do not ignore
+	 *
+	 * <p>Values with ignored descendants are walked rather than hashed, so
+	 * that ignored values are never hashed.</p>
+	 *
+	 * @param node the node
+	 * @param settings the diff settings at this node
+	 * @return the number of nodes
+	 */
+	int size(final JsonNode node, final PointerTrie settings) {
+		if (settings.isIgnored())
+			return 0;
+		if (!settings.hasIgnoredDescendants() || !node.isContainerNode())
+			return size(node);
+		int ret = 1;
+		if (node.isArray()) {
+			for (int i = 0; i < node.size(); i++)
+				ret += size(node.get(i), settings.element(i));
+			return ret;
+		}
+		final Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+		Map.Entry<String, JsonNode> field;
+		while (fields.hasNext()) {
+			field = fields.next();
+			ret += size(field.getValue(), settings.child(field.getKey()));
+		}
+		return ret;
+	}
+
+	/**
+	 * Tell whether two nodes are equivalent according to {@link JsonNumEquals}
+	 *
+	 * @param first the first node
+	 * @param second the second node
+	 * @return true if both nodes are equivalent
+	 */
+	boolean equivalent(final JsonNode first, final JsonNode second) {
+		if (first == second)
+			return true;
+		return get(first) == get(second) && EQUIVALENCE.equivalent(first, second);
+	}
+
+	/**
+	 * Tell whether two nodes are equal according to {@link JsonNode#equals(Object)}
+	 *
+	 * <p>Equal nodes are also equivalent, so fingerprints can be used to reject
+	 * unequal nodes early.</p>
+	 *
+	 * @param first the first node
+	 * @param second the second node, may be null
+	 * @return true if both nodes are equal
+	 */
+	boolean equal(final JsonNode first, final JsonNode second) {
+		if (second == null)
+			return false;
+		if (first == second)
+			return true;
+		return get(first) == get(second) && first.equals(second);
+	}
+
+	/**
+	 * Build a hash key for a node using its fingerprint
+	 *
+	 * @param node the node
+	 * @return the key
+	 */
+	EquivalenceKey key(final JsonNode node) {
+		return new EquivalenceKey(node, get(node));
+	}
+
+	private Container container(final JsonNode node) {
+		Container ret = lookup(node);
+		if (ret == null) {
+			ret = node.isArray() ? arrayContainer(node) : objectContainer(node);
+			containers.put(node, ret);
+		}
+		return ret;
+	}
+
+	private Container lookup(final JsonNode node) {
+		final Container ret = base == null ? null : base.lookup(node);
+		return ret != null ? ret : containers.get(node);
+	}
+
+	private Container arrayContainer(final JsonNode node) {
+		int ret = ARRAY_SEED;
+		int size = 1;
+		for (final JsonNode element : node) {
+			ret = 31 * ret + get(element);
+			size += size(element);
+		}
+		return new Container(ret, size);
+	}
+
+	/*
+	 * Object members are summed so that their order does not matter
+	 */
+	private Container objectContainer(final JsonNode node) {
+		int ret = OBJECT_SEED;
+		int size = 1;
+		final Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+		Map.Entry<String, JsonNode> field;
+		while (fields.hasNext()) {
+			field = fields.next();
+			ret += mix(field.getKey().hashCode() * 31 + get(field.getValue()));
+			size += size(field.getValue());
+		}
+		return new Container(ret, size);
+	}
+
+	/*
+	 * Equivalent numbers have the same double value, except for zeros: -0.0
+	 * is equivalent to 0 but its double has a different hash code
+	 */
+	private static int numberHash(final double value) {
+		return value == 0 ? 0 : Double.valueOf(value).hashCode();
+	}
+
+	/*
+	 * Finalization step of MurmurHash3; spreads the bits of a member hash
+	 * before it is summed, so that swapping values between members does not
+	 * trivially collide
+	 */
+	private static int mix(final int h) {
+		int ret = h;
+		ret ^= ret >>> 16;
+		ret *= 0x85EBCA6B;
+		ret ^= ret >>> 13;
+		ret *= 0xC2B2AE35;
+		ret ^= ret >>> 16;
+		return ret;
+	}
+
+	private static final class Container {
+		private final int fingerprint;
+		private final int size;
+
+		private Container(final int fingerprint, final int size) {
+			this.fingerprint = fingerprint;
+			this.size = size;
+		}
+	}
+}
@@ -0,0 +1,317 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch.diff;
+
+import java.util.Map;
+import java.util.Set;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+import com.github.fge.jackson.jsonpointer.TokenResolver;
+import com.google.common.collect.Maps;
+
+/**
+ * Diff settings indexed by JSON Pointer reference tokens
+ *
+ * <p>
+ * Each node of the trie stands for a pointer, and holds the settings for the
+ * value at this pointer; its children are reached by the reference tokens
+ * following this pointer. A {@link #WILDCARD} token matches any single token.
+ * </p>
+ *
+ * <p>
+ * When a trie is compiled, the subtree under a wildcard is merged into the
+ * subtrees of all its exact siblings, so that going down the trie never
+ * needs backtracking: a token leads to its exact child if there is one, to
+ * the wildcard child otherwise. When several patterns match the same pointer,
+ * the one with an exact token at the rightmost position where the patterns
+ * differ wins.
+ * </p>
+ *
+ * <p>
+ * When some pointers are included, nodes on the way to an included node are
+ * restricted: the values at their children which lead to no included node
+ * are ignored.
+ * </p>
+ *
+ * <p>
+ * A compiled trie is not modified anymore, and can be used by several threads
+ * concurrently.
+ * </p>
+ */
+final class PointerTrie {
+	/**
+	 * The reference token matching any token
+	 */
+	static final String WILDCARD = "*";
+
+	/*
+	 * The node of all pointers for which no settings exist
+	 */
+	private static final PointerTrie EMPTY = new PointerTrie();
+
+	/*
+	 * The node of all pointers leading to no included pointer
+	 */
+	private static final PointerTrie EXCLUDED = excluded();
+
+	private final Map<String, PointerTrie> children = Maps.newHashMap();
+	private PointerTrie wildcard;
+	private ArrayKey arrayKey;
+	private boolean ignored;
+	private boolean included;
+	private boolean includedBelow;
+	private boolean restricted;
+	private boolean ignoredBelow;
+	private boolean settingsBelow;
+
+	private PointerTrie() {
+	}
+
+	/**
+	 * Compile the trie for a set of settings
+	 *
+	 * @param arrayKeys the keys of arrays, by pointer pattern
+	 * @param ignoredPointers pointer patterns of ignored values
+	 * @param includedPointers pointer patterns of included values; if empty,
+	 *        all values are included
+	 * @return the root of the trie
+	 */
+	static PointerTrie compile(final Map<JsonPointer, ArrayKey> arrayKeys, final Set<JsonPointer> ignoredPointers,
+			final Set<JsonPointer> includedPointers) {
+		final PointerTrie root = new PointerTrie();
+		for (final Map.Entry<JsonPointer, ArrayKey> entry : arrayKeys.entrySet())
+			root.insert(entry.getKey()).arrayKey = entry.getValue();
+		for (final JsonPointer pointer : ignoredPointers)
+			root.insert(pointer).ignored = true;
+		for (final JsonPointer pointer : includedPointers)
+			root.insert(pointer).included = true;
+		root.mergeWildcards();
+		if (!includedPointers.isEmpty()) {
+			root.markIncludedBelow();
+			root.restrict();
+		}
+		root.markIgnoredBelow();
+		root.markSettingsBelow();
+		return root;
+	}
+
+	/**
+	 * Return the node for an object member of the value at this node
+	 *
+	 * @param name the member name
+	 * @return the node, never null
+	 */
+	PointerTrie child(final String name) {
+		PointerTrie ret = children.get(name);
+		if (ret == null)
+			ret = wildcard;
+		if (ret == null)
+			return restricted ? EXCLUDED : EMPTY;
+		return ret;
+	}
+
+	/**
+	 * Return the node for an array element of the value at this node
+	 *
+	 * @param index the element index
+	 * @return the node, never null
+	 */
+	PointerTrie element(final int index) {
+		if (!children.isEmpty())
+			return child(Integer.toString(index));
+		if (wildcard != null)
+			return wildcard;
+		return restricted ? EXCLUDED : EMPTY;
+	}
+
+	/**
+	 * Return the key of the array at this node
+	 *
+	 * @return the key, or null if the array has no key
+	 */
+	ArrayKey getArrayKey() {
+		return arrayKey;
+	}
+
+	boolean isIgnored() {
+		return ignored;
+	}
+
+	/**
+	 * Tell whether values within the value at this node may be ignored
+	 *
+	 * <p>If so, the value at this node cannot be compared as a whole.</p>
+	 *
+	 * @return true if a descendant of this node is ignored
+	 */
+	boolean hasIgnoredDescendants() {
+		return ignoredBelow;
+	}
+
+	/**
+	 * Tell whether settings apply within the value at this node
+	 *
+	 * <p>This is the case if the value is an array with a key, if some of its
+	 * children are excluded, or if a descendant of this node has settings of
+	 * its own.</p>
+	 *
+	 * @return true if the value at this node should not be compared as a
+	 *         whole
+	 */
+	boolean hasSettingsWithin() {
+		return arrayKey != null || restricted || settingsBelow;
+	}
+
+	private PointerTrie insert(final JsonPointer pointer) {
+		PointerTrie node = this;
+		String token;
+		PointerTrie next;
+		for (final TokenResolver<JsonNode> resolver : pointer) {
+			token = resolver.getToken().getRaw();
+			if (WILDCARD.equals(token)) {
+				if (node.wildcard == null)
+					node.wildcard = new PointerTrie();
+				next = node.wildcard;
+			} else {
+				next = node.children.get(token);
+				if (next == null) {
+					next = new PointerTrie();
+					node.children.put(token, next);
+				}
+			}
+			node = next;
+		}
+		return node;
+	}
+
+	/*
+	 * Merge wildcard subtrees into their exact siblings, top down, so that
+	 * wildcards brought in by a merge are themselves merged further down
+	 */
+	private void mergeWildcards() {
+		if (wildcard != null) {
+			for (final Map.Entry<String, PointerTrie> entry : children.entrySet())
+				entry.setValue(merge(entry.getValue(), wildcard));
+			wildcard.mergeWildcards();
+		}
+		for (final PointerTrie child : children.values())
+			child.mergeWildcards();
+	}
+
+	/*
+	 * Must be called once wildcards are merged; returns true if this node or
+	 * one of its descendants is included
+	 */
+	private boolean markIncludedBelow() {
+		boolean below = false;
+		for (final PointerTrie child : children.values())
+			below |= child.markIncludedBelow();
+		if (wildcard != null)
+			below |= wildcard.markIncludedBelow();
+		includedBelow = below;
+		return below || included;
+	}
+
+	/*
+	 * Restrict this node, which is not within an included node, to its
+	 * children leading to an included node
+	 */
+	private void restrict() {
+		if (included)
+			return;
+		restricted = true;
+		for (final Map.Entry<String, PointerTrie> entry : children.entrySet()) {
+			if (entry.getValue().included || entry.getValue().includedBelow)
+				entry.getValue().restrict();
+			else
+				entry.setValue(excluded());
+		}
+		if (wildcard != null) {
+			if (wildcard.included || wildcard.includedBelow)
+				wildcard.restrict();
+			else
+				wildcard = null;
+		}
+	}
+
+	/*
+	 * Must be called once wildcards are merged and nodes restricted; returns
+	 * true if this node or one of its descendants is ignored
+	 */
+	private boolean markIgnoredBelow() {
+		boolean below = restricted;
+		for (final PointerTrie child : children.values())
+			below |= child.markIgnoredBelow();
+		if (wildcard != null)
+			below |= wildcard.markIgnoredBelow();
+		ignoredBelow = below;
+		return below || ignored;
+	}
+
+	/*
+	 * Must be called once wildcards are merged and nodes restricted; returns
+	 * true if this node or one of its descendants has settings
+	 */
+	private boolean markSettingsBelow() {
+		boolean below = false;
+		for (final PointerTrie child : children.values())
+			below |= child.markSettingsBelow();
+		if (wildcard != null)
+			below |= wildcard.markSettingsBelow();
+		settingsBelow = below;
+		return below || arrayKey != null || ignored || included || restricted;
+	}
+
+	private static PointerTrie excluded() {
+		final PointerTrie ret = new PointerTrie();
+		ret.ignored = true;
+		return ret;
+	}
+
+	/*
+	 * Build a new subtree out of two subtrees; settings of the first one take
+	 * precedence. The result shares no node with its inputs.
+	 */
+	private static PointerTrie merge(final PointerTrie first, final PointerTrie second) {
+		if (first == null && second == null)
+			return null;
+		final PointerTrie ret = new PointerTrie();
+		if (first != null) {
+			ret.arrayKey = first.arrayKey;
+			ret.ignored = first.ignored;
+			ret.included = first.included;
+			for (final Map.Entry<String, PointerTrie> entry : first.children.entrySet())
+				ret.children.put(entry.getKey(), merge(entry.getValue(), second == null ? null
+						: second.children.get(entry.getKey())));
+		}
+		if (second != null) {
+			if (ret.arrayKey == null)
+				ret.arrayKey = second.arrayKey;
+			ret.ignored |= second.ignored;
+			ret.included |= second.included;
+			for (final Map.Entry<String, PointerTrie> entry : second.children.entrySet())
+				if (!ret.children.containsKey(entry.getKey()))
+					ret.children.put(entry.getKey(), merge(null, entry.getValue()));
+		}
+		ret.wildcard = merge(first == null ? null : first.wildcard, second == null ? null : second.wildcard);
+		return ret;
+	}
+}
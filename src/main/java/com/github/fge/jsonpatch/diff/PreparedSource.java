@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch.diff;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.github.fge.jsonpatch.JsonDiffException;
+import com.github.fge.jsonpatch.JsonPatch;
+import com.github.fge.jsonpatch.JsonPatchMessages;
+import com.github.fge.msgsimple.bundle.MessageBundle;
+import com.github.fge.msgsimple.load.MessageBundles;
+import com.google.common.collect.ImmutableSortedSet;
+
+/**
+ * A source value indexed once, to be diffed against any number of targets
+ *
+ * <p>
+ * Preparing a source computes, for the given {@link DiffConfig}, everything a
+ * custom diff needs to know about the source alone: the fingerprints of its
+ * values, the sorted member names of its objects, and the indices of the
+ * elements of its arrays with a composite key. Diffs against a prepared
+ * source only compute these for their target.
+ * </p>
+ *
+ * <p>
+ * Instances are thread safe: any number of diffs can use the same prepared
+ * source concurrently. The source must not be modified once prepared.
+ * </p>
+ *
+ * @see JsonDiff#prepare(DiffConfig, JsonNode)
+ */
+@ThreadSafe
+public final class PreparedSource {
+	private static final MessageBundle BUNDLE = MessageBundles.getBundle(JsonPatchMessages.class);
+
+	private final DiffConfig config;
+	private final JsonNode source;
+	private final NodeFingerprints fingerprints = new NodeFingerprints();
+	private final Map<JsonNode, Set<String>> fieldNames = new IdentityHashMap<JsonNode, Set<String>>();
+	private final Map<JsonNode, KeyIndex> keyIndices = new IdentityHashMap<JsonNode, KeyIndex>();
+
+	PreparedSource(final DiffConfig config, final JsonNode source) {
+		this.config = config;
+		this.source = source;
+		index(source, config.getTrie());
+	}
+
+	/**
+	 * Diff this source against a target, as a {@link JsonPatch}
+	 *
+	 * @param target the target
+	 * @return the patch
+	 * @throws JsonDiffException the diff failed
+	 * @see JsonDiff#asJsonPatch(DiffConfig, JsonNode, JsonNode)
+	 */
+	public JsonPatch asJsonPatch(final JsonNode target) throws JsonDiffException {
+		final JsonPatchSink sink = new JsonPatchSink();
+
+		try {
+			diff(target, sink, CancellationToken.NONE);
+		} catch (IOException e) {
+			throw new JsonDiffException(BUNDLE.getMessage("jsonDiff.generic"), e);
+		}
+		return sink.getPatch();
+	}
+
+	/**
+	 * Diff this source against a target, as a {@link JsonNode}
+	 *
+	 * @param target the target
+	 * @return the patch
+	 * @throws JsonDiffException the diff failed
+	 * @see JsonDiff#asJson(DiffConfig, JsonNode, JsonNode)
+	 */
+	public JsonNode asJson(final JsonNode target) throws JsonDiffException {
+		final JsonNodeSink sink = new JsonNodeSink();
+
+		try {
+			diff(target, sink, CancellationToken.NONE);
+		} catch (IOException e) {
+			throw new JsonDiffException(BUNDLE.getMessage("jsonDiff.generic"), e);
+		}
+		return sink.getPatch();
+	}
+
+	/**
+	 * Diff this source against a target, reporting operations to a sink,
+	 * unless the diff is cancelled
+	 *
+	 * @param target the target
+	 * @param sink the sink to report operations to
+	 * @param token the token to stop the diff with
+	 * @throws JsonDiffException the diff failed, or was cancelled
+	 * @throws IOException the sink failed
+	 * @see JsonDiff#diff(DiffConfig, JsonNode, JsonNode, DiffSink, CancellationToken)
+	 */
+	public void diff(final JsonNode target, final DiffSink sink, final CancellationToken token)
+			throws JsonDiffException, IOException {
+		JsonDiff.diff(this, target, sink, token);
+	}
+
+	/**
+	 * Tell whether a diff of this source against a target would be empty
+	 *
+	 * @param target the target
+	 * @return true if the diff would find no difference
+	 * @throws JsonDiffException the comparison failed
+	 * @see JsonDiff#isEquivalent(DiffConfig, JsonNode, JsonNode)
+	 */
+	public boolean isEquivalent(final JsonNode target) throws JsonDiffException {
+		return JsonDiff.isEquivalent(this, target);
+	}
+
+	DiffConfig getConfig() {
+		return config;
+	}
+
+	JsonNode getSource() {
+		return source;
+	}
+
+	/**
+	 * Return fingerprints for one diff against this source
+	 *
+	 * @return fingerprints which reuse those of the source
+	 */
+	NodeFingerprints newFingerprints() {
+		return new NodeFingerprints(fingerprints);
+	}
+
+	/**
+	 * Return the sorted member names of an object of the source
+	 *
+	 * @param node the object
+	 * @return the names, or null if the object is not part of the source
+	 */
+	Set<String> getFieldNames(final JsonNode node) {
+		return fieldNames.get(node);
+	}
+
+	/**
+	 * Return the indices of the elements of an array of the source, by key
+	 *
+	 * @param node the array
+	 * @param keyFields the key fields
+	 * @return the indices, or null if they were not computed for these fields
+	 */
+	Map<CompositeKey, Integer> getKeyIndex(final JsonNode node, final String[] keyFields) {
+		final KeyIndex ret = keyIndices.get(node);
+		return ret != null && Arrays.equals(ret.keyFields, keyFields) ? ret.indices : null;
+	}
+
+	private void index(final JsonNode node, final PointerTrie settings) {
+		if (settings.isIgnored())
+			return;
+		// Values with ignored descendants are never hashed as a whole
+		if (!settings.hasIgnoredDescendants())
+			fingerprints.get(node);
+		if (node.isObject()) {
+			fieldNames.put(node, ImmutableSortedSet.copyOf(node.fieldNames()));
+			final Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+			Map.Entry<String, JsonNode> field;
+			while (fields.hasNext()) {
+				field = fields.next();
+				index(field.getValue(), settings.child(field.getKey()));
+			}
+		} else if (node.isArray()) {
+			final ArrayKey arrayKey = settings.getArrayKey();
+			if (arrayKey != null && arrayKey.isComposite()) {
+				try {
+					keyIndices.put(node, new KeyIndex(arrayKey.getFields(),
+							JsonDiff.generateMapOfKeysValues((ArrayNode) node, arrayKey.getFields())));
+				} catch (JsonDiffException e) {
+					// Left for the diffs to report, if they get there
+				}
+			}
+			for (int i = 0; i < node.size(); i++)
+				index(node.get(i), settings.element(i));
+		}
+	}
+
+	private static final class KeyIndex {
+		private final String[] keyFields;
+		private final Map<CompositeKey, Integer> indices;
+
+		private KeyIndex(final String[] keyFields, final Map<CompositeKey, Integer> indices) {
+			this.keyFields = keyFields;
+			this.indices = indices;
+		}
+	}
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch.diff;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+
+/**
+ * A {@link DiffHandler} passing differences on to a {@link DiffSink} as soon
+ * as they are found
+ *
+ * <p>
+ * Nothing is retained, so that removals and additions are never factored into
+ * moves or copies. Failures of the sink are reported as {@link SinkFailure}s.
+ * </p>
+ */
+final class StreamingDiffHandler extends DiffHandler {
+	private final DiffSink sink;
+
+	StreamingDiffHandler(final NodeFingerprints fingerprints, final DiffSink sink) {
+		super(fingerprints);
+		this.sink = sink;
+	}
+
+	@Override
+	void valueUnchanged(final JsonPointer pointer, final JsonNode value) {
+		// Only of use to factor copies
+	}
+
+	@Override
+	void valueReplaced(final JsonPointer pointer, final JsonNode oldValue, final JsonNode newValue) {
+		try {
+			sink.replace(pointer, oldValue, newValue);
+		} catch (IOException e) {
+			throw new SinkFailure(e);
+		}
+	}
+
+	@Override
+	void valueRemoved(final JsonPointer pointer, final JsonNode value) {
+		try {
+			sink.remove(pointer, value);
+		} catch (IOException e) {
+			throw new SinkFailure(e);
+		}
+	}
+
+	@Override
+	void valueAdded(final JsonPointer pointer, final JsonNode value) {
+		try {
+			sink.add(pointer, value);
+		} catch (IOException e) {
+			throw new SinkFailure(e);
+		}
+	}
+
+	@Override
+	void arrayObjectValueReplaced(final JsonPointer pointer, final JsonNode oldValue, final JsonNode newValue) {
+		try {
+			sink.arrayObjectReplace(pointer, oldValue, newValue);
+		} catch (IOException e) {
+			throw new SinkFailure(e);
+		}
+	}
+
+	@Override
+	void arrayObjectValueRemoved(final JsonPointer pointer, final JsonNode value) {
+		try {
+			sink.arrayObjectRemove(pointer, value);
+		} catch (IOException e) {
+			throw new SinkFailure(e);
+		}
+	}
+
+	/**
+	 * Unchecked wrapper of a failure of the sink
+	 */
+	static final class SinkFailure extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		private SinkFailure(final IOException cause) {
+			super(cause);
+		}
+
+		@Override
+		public synchronized IOException getCause() {
+			return (IOException) super.getCause();
+		}
+	}
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch.diff;
+
+import java.util.Set;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+import com.github.fge.jackson.jsonpointer.TokenResolver;
+import com.google.common.collect.Sets;
+
+/**
+ * A {@link DiffSink} counting operations into a {@link DiffSummary}
+ *
+ * <p>
+ * Values are never looked at, let alone copied.
+ * </p>
+ */
+final class SummarySink implements DiffSink {
+	private final int depth;
+	private final Set<JsonPointer> paths = Sets.newLinkedHashSet();
+	private int added;
+	private int removed;
+	private int replaced;
+	private int moved;
+	private int copied;
+
+	SummarySink(final int depth) {
+		this.depth = depth;
+	}
+
+	@Override
+	public void add(final JsonPointer path, final JsonNode value) {
+		added++;
+		touch(path);
+	}
+
+	@Override
+	public void remove(final JsonPointer path, final JsonNode oldValue) {
+		removed++;
+		touch(path);
+	}
+
+	@Override
+	public void replace(final JsonPointer path, final JsonNode oldValue, final JsonNode value) {
+		replaced++;
+		touch(path);
+	}
+
+	@Override
+	public void move(final JsonPointer from, final JsonPointer path) {
+		moved++;
+		touch(from);
+		touch(path);
+	}
+
+	@Override
+	public void copy(final JsonPointer from, final JsonPointer path) {
+		copied++;
+		touch(path);
+	}
+
+	@Override
+	public void arrayObjectRemove(final JsonPointer path, final JsonNode originalValue) {
+		removed++;
+		touch(path);
+	}
+
+	@Override
+	public void arrayObjectReplace(final JsonPointer path, final JsonNode originalValue, final JsonNode value) {
+		replaced++;
+		touch(path);
+	}
+
+	DiffSummary getSummary() {
+		return new DiffSummary(added, removed, replaced, moved, copied, paths);
+	}
+
+	private void touch(final JsonPointer path) {
+		JsonPointer prefix = JsonPointer.empty();
+		int remaining = depth;
+		for (final TokenResolver<JsonNode> resolver : path) {
+			if (remaining-- == 0)
+				break;
+			prefix = prefix.append(resolver.getToken().getRaw());
+		}
+		paths.add(prefix);
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.github.fge.jackson.JsonLoader;
+import com.github.fge.jsonpatch.JsonPatch.ApplyMode;
+import com.github.fge.jsonpatch.diff.JsonDiff;
+import com.google.common.collect.Lists;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.testng.Assert.*;
+
+public final class CompiledPatchTest {
+	@DataProvider
+	public Iterator<Object[]> getPatches() throws IOException {
+		final List<Object[]> list = Lists.newArrayList();
+
+		for (final JsonNode element : JsonLoader.fromResource("/jsonpatch/diff/diff.json"))
+			list.add(new Object[] { element.get("first"),
+					JsonDiff.asJsonPatch(element.get("first"), element.get("second")) });
+
+		return list.iterator();
+	}
+
+	@Test(dataProvider = "getPatches")
+	public void compiledPatchAgreesWithPatch(final JsonNode node, final JsonPatch patch) throws JsonPatchException {
+		final CompiledPatch compiled = patch.compile();
+		final JsonNode original = node.deepCopy();
+		final JsonNode expected = patch.apply(node);
+
+		for (final ApplyMode mode : ApplyMode.values())
+			assertEquals(compiled.apply(node.deepCopy(), mode), expected);
+		assertEquals(node, original, "input was modified");
+	}
+
+	/*
+	 * Last reference tokens read as an array index, the end of an array, and
+	 * an object member
+	 */
+	@DataProvider
+	public Iterator<Object[]> getTokens() {
+		final List<Object[]> list = Lists.newArrayList();
+
+		list.add(new Object[] { "[ { \"op\": \"add\", \"path\": \"/l/1\", \"value\": 9 } ]",
+				"{ \"l\": [ 1, 9, 2 ], \"o\": { \"m\": 1 } }" });
+		list.add(new Object[] { "[ { \"op\": \"remove\", \"path\": \"/l/0\" } ]",
+				"{ \"l\": [ 2 ], \"o\": { \"m\": 1 } }" });
+		list.add(new Object[] { "[ { \"op\": \"replace\", \"path\": \"/l/1\", \"value\": 9 } ]",
+				"{ \"l\": [ 1, 9 ], \"o\": { \"m\": 1 } }" });
+		list.add(new Object[] { "[ { \"op\": \"add\", \"path\": \"/l/-\", \"value\": 9 } ]",
+				"{ \"l\": [ 1, 2, 9 ], \"o\": { \"m\": 1 } }" });
+		list.add(new Object[] { "[ { \"op\": \"move\", \"from\": \"/o\", \"path\": \"/l/-\" } ]",
+				"{ \"l\": [ 1, 2, { \"m\": 1 } ] }" });
+		list.add(new Object[] { "[ { \"op\": \"add\", \"path\": \"/o/n\", \"value\": 9 } ]",
+				"{ \"l\": [ 1, 2 ], \"o\": { \"m\": 1, \"n\": 9 } }" });
+		list.add(new Object[] { "[ { \"op\": \"replace\", \"path\": \"/o/m\", \"value\": 9 } ]",
+				"{ \"l\": [ 1, 2 ], \"o\": { \"m\": 9 } }" });
+		list.add(new Object[] { "[ { \"op\": \"copy\", \"from\": \"/l/1\", \"path\": \"/o/0\" } ]",
+				"{ \"l\": [ 1, 2 ], \"o\": { \"m\": 1, \"0\": 2 } }" });
+		list.add(new Object[] { "[ { \"op\": \"test\", \"path\": \"/l/1\", \"value\": 2 } ]",
+				"{ \"l\": [ 1, 2 ], \"o\": { \"m\": 1 } }" });
+
+		return list.iterator();
+	}
+
+	@Test(dataProvider = "getTokens")
+	public void compiledPathsAreResolvedCorrectly(final String operations, final String result)
+			throws IOException, JsonPatchException {
+		final JsonNode node = JsonLoader.fromString("{ \"l\": [ 1, 2 ], \"o\": { \"m\": 1 } }");
+		final JsonNode original = node.deepCopy();
+		final JsonNode expected = JsonLoader.fromString(result);
+		final CompiledPatch compiled = JsonPatch.fromJson(JsonLoader.fromString(operations)).compile();
+
+		for (final ApplyMode mode : ApplyMode.values())
+			assertEquals(compiled.apply(node.deepCopy(), mode), expected);
+		assertEquals(compiled.apply(node), expected);
+		assertEquals(node, original, "input was modified");
+	}
+
+	@Test
+	public void compiledPatchCanBeReused() throws IOException, JsonPatchException {
+		final CompiledPatch compiled = JsonPatch.fromJson(JsonLoader.fromString("[ "
+				+ "{ \"op\": \"add\", \"path\": \"/l/-\", \"value\": 9 }, "
+				+ "{ \"op\": \"remove\", \"path\": \"/l/0\" } ]")).compile();
+
+		for (int size = 1; size < 5; size++) {
+			final JsonNode node = JsonLoader.fromString("{ \"l\": [] }");
+			for (int index = 0; index < size; index++)
+				((ArrayNode) node.get("l")).add(index);
+			final JsonNode patched = compiled.apply(node);
+			assertEquals(patched.get("l").size(), size);
+			assertEquals(patched.get("l").get(size - 1).intValue(), 9);
+		}
+	}
+
+	@Test
+	public void patchIsCompiledOnce() throws IOException {
+		final JsonPatch patch = JsonPatch.fromJson(JsonLoader.fromString("[ "
+				+ "{ \"op\": \"add\", \"path\": \"/a\", \"value\": 1 } ]"));
+
+		assertSame(patch.compile(), patch.compile());
+	}
+
+	@Test
+	public void compiledPatchFailsAsPatch() throws IOException {
+		final JsonNode node = JsonLoader.fromString("{ \"l\": [ 1, 2 ] }");
+		final CompiledPatch compiled = JsonPatch.fromJson(JsonLoader.fromString(
+				"[ { \"op\": \"remove\", \"path\": \"/l/5\" } ]")).compile();
+
+		try {
+			compiled.apply(node);
+			fail("No exception thrown!!");
+		} catch (JsonPatchException e) {
+			assertEquals(e.getMessage(), JsonPatchOperation.BUNDLE.getMessage("jsonPatch.noSuchPath"));
+		}
+	}
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jackson.JsonLoader;
+import com.github.fge.jsonpatch.JsonPatch.ApplyMode;
+import com.github.fge.jsonpatch.diff.JsonDiff;
+import com.google.common.collect.Lists;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.testng.Assert.*;
+
+public final class JsonPatchApplyModeTest {
+	@DataProvider
+	public Iterator<Object[]> getPatches() throws IOException {
+		final List<Object[]> list = Lists.newArrayList();
+
+		for (final JsonNode element : JsonLoader.fromResource("/jsonpatch/testsuite.json"))
+			if (element.has("patch"))
+				list.add(new Object[] { element.get("doc"), JsonPatch.fromJson(element.get("patch")) });
+		for (final JsonNode element : JsonLoader.fromResource("/jsonpatch/diff/diff.json"))
+			list.add(new Object[] { element.get("first"),
+					JsonDiff.asJsonPatch(element.get("first"), element.get("second")) });
+
+		return list.iterator();
+	}
+
+	@Test(dataProvider = "getPatches")
+	public void allApplyModesAgree(final JsonNode node, final JsonPatch patch) {
+		final JsonNode original = node.deepCopy();
+		final String copied = outcome(patch, node, ApplyMode.COPY);
+
+		assertEquals(node, original, "input was modified");
+		assertEquals(outcome(patch, node.deepCopy(), ApplyMode.IN_PLACE), copied);
+		assertEquals(outcome(patch, node, ApplyMode.COPY_ON_WRITE), copied);
+		assertEquals(node, original, "input was modified");
+	}
+
+	/*
+	 * Move and copy share or duplicate values; operations which follow them
+	 * must not modify the input through the values they share
+	 */
+	@DataProvider
+	public Iterator<Object[]> getEditsAfterMovesAndCopies() {
+		final List<Object[]> list = Lists.newArrayList();
+
+		list.add(new Object[] { "[ { \"op\": \"move\", \"from\": \"/a\", \"path\": \"/m\" }, "
+				+ "{ \"op\": \"replace\", \"path\": \"/m/b\", \"value\": 9 } ]" });
+		list.add(new Object[] { "[ { \"op\": \"copy\", \"from\": \"/a\", \"path\": \"/c\" }, "
+				+ "{ \"op\": \"add\", \"path\": \"/c/x\", \"value\": 9 }, "
+				+ "{ \"op\": \"remove\", \"path\": \"/a/b\" } ]" });
+		list.add(new Object[] { "[ { \"op\": \"move\", \"from\": \"/l/0\", \"path\": \"/z\" }, "
+				+ "{ \"op\": \"add\", \"path\": \"/z/k\", \"value\": 9 }, "
+				+ "{ \"op\": \"replace\", \"path\": \"/l/0/k\", \"value\": 8 } ]" });
+		list.add(new Object[] { "[ { \"op\": \"move\", \"from\": \"/a/d\", \"path\": \"/l/-\" }, "
+				+ "{ \"op\": \"add\", \"path\": \"/l/2/-\", \"value\": 9 } ]" });
+		list.add(new Object[] { "[ { \"op\": \"copy\", \"from\": \"/a/d\", \"path\": \"/l/0/d\" }, "
+				+ "{ \"op\": \"move\", \"from\": \"/l/0\", \"path\": \"/a/e\" }, "
+				+ "{ \"op\": \"remove\", \"path\": \"/a/e/d/0\" }, "
+				+ "{ \"op\": \"replace\", \"path\": \"/a/d/1\", \"value\": 9 } ]" });
+		list.add(new Object[] { "[ { \"op\": \"move\", \"from\": \"/a\", \"path\": \"/m\" }, "
+				+ "{ \"op\": \"move\", \"from\": \"/m\", \"path\": \"/a\" }, "
+				+ "{ \"op\": \"add\", \"path\": \"/a/d/0\", \"value\": 9 } ]" });
+
+		return list.iterator();
+	}
+
+	@Test(dataProvider = "getEditsAfterMovesAndCopies")
+	public void copyOnWriteLeavesMovedAndCopiedValuesUntouched(final String operations)
+			throws IOException, JsonPatchException {
+		final JsonNode node = JsonLoader.fromString(
+				"{ \"a\": { \"b\": 1, \"d\": [ 1, 2 ] }, \"l\": [ { \"k\": 1 }, { \"k\": 2 } ] }");
+		final JsonNode original = node.deepCopy();
+		final JsonPatch patch = JsonPatch.fromJson(JsonLoader.fromString(operations));
+
+		final JsonNode patched = patch.apply(node, ApplyMode.COPY_ON_WRITE);
+
+		assertEquals(patched, patch.apply(original, ApplyMode.COPY));
+		assertEquals(node, original, "input was modified");
+	}
+
+	@Test
+	public void copyOnWriteSharesUntouchedValues() throws IOException, JsonPatchException {
+		final JsonNode node = JsonLoader.fromString("{ \"a\": { \"b\": [ 1, 2 ], \"c\": { \"d\": 1 } }, "
+				+ "\"e\": { \"f\": 1 } }");
+		final JsonPatch patch = JsonPatch.fromJson(JsonLoader.fromString(
+				"[ { \"op\": \"replace\", \"path\": \"/a/b/1\", \"value\": 3 } ]"));
+
+		final JsonNode patched = patch.apply(node, ApplyMode.COPY_ON_WRITE);
+
+		assertEquals(patched.get("a").get("b").get(1).intValue(), 3);
+		assertEquals(node.get("a").get("b").get(1).intValue(), 2);
+		assertSame(patched.get("e"), node.get("e"));
+		assertSame(patched.get("a").get("c"), node.get("a").get("c"));
+		assertNotSame(patched.get("a"), node.get("a"));
+	}
+
+	@Test
+	public void copyLeavesInputUntouchedOnFailure() throws IOException {
+		final JsonNode node = JsonLoader.fromString("{ \"a\": { \"b\": 1 }, \"c\": [ 1, 2 ] }");
+		final JsonNode original = node.deepCopy();
+		final JsonPatch patch = JsonPatch.fromJson(JsonLoader.fromString("[ "
+				+ "{ \"op\": \"replace\", \"path\": \"/a/b\", \"value\": 2 }, "
+				+ "{ \"op\": \"remove\", \"path\": \"/c/0\" }, "
+				+ "{ \"op\": \"test\", \"path\": \"/a/b\", \"value\": 1 } ]"));
+
+		try {
+			patch.apply(node, ApplyMode.COPY);
+			fail("No exception thrown!!");
+		} catch (JsonPatchException ignored) {
+			assertEquals(node, original);
+		}
+	}
+
+	@Test
+	public void inPlacePatchesInput() throws IOException, JsonPatchException {
+		final JsonNode node = JsonLoader.fromString("{ \"a\": { \"b\": 1 }, \"c\": [ 1, 2 ] }");
+		final JsonNode inner = node.get("a");
+		final JsonPatch patch = JsonPatch.fromJson(JsonLoader.fromString("[ "
+				+ "{ \"op\": \"replace\", \"path\": \"/a/b\", \"value\": 2 }, "
+				+ "{ \"op\": \"add\", \"path\": \"/c/-\", \"value\": 3 } ]"));
+
+		final JsonNode patched = patch.apply(node, ApplyMode.IN_PLACE);
+
+		assertSame(patched, node);
+		assertSame(patched.get("a"), inner);
+		assertEquals(node, JsonLoader.fromString("{ \"a\": { \"b\": 2 }, \"c\": [ 1, 2, 3 ] }"));
+	}
+
+	/*
+	 * The patched value, or the failure, as text
+	 */
+	private static String outcome(final JsonPatch patch, final JsonNode node, final ApplyMode mode) {
+		try {
+			return patch.apply(node, mode).toString();
+		} catch (JsonPatchException e) {
+			return "failure: " + e.getMessage();
+		}
+	}
+}
@@ -99,4 +99,29 @@ public abstract class JsonPatchOperationTest {
 		if (EQUIVALENCE.equivalent(node, actual) && node.isContainerNode())
 			assertNotSame(node, actual, "operation didn't make a copy of the input node");
 	}
+
+	@Test(dataProvider = "getErrors")
+	public final void errorsAreCorrectlyReportedInPlace(final JsonNode patch, final JsonNode node, final String message)
+			throws IOException {
+		final JsonPatchOperation op = reader.readValue(patch);
+
+		try {
+			op.applyInPlace(node.deepCopy());
+			fail("No exception thrown!!");
+		} catch (JsonPatchException e) {
+			assertEquals(e.getMessage(), message);
+		}
+	}
+
+	@Test(dataProvider = "getOps")
+	public final void operationsInPlaceYieldExpectedResults(final JsonNode patch, final JsonNode node,
+			final JsonNode expected) throws IOException, JsonPatchException {
+		final JsonPatchOperation op = reader.readValue(patch);
+		final JsonNode original = node.deepCopy();
+		final JsonNode actual = op.applyInPlace(node.deepCopy());
+		assertTrue(EQUIVALENCE.equivalent(actual, expected),
+				"patched node differs from expectations: expected " + expected + " but found " + actual);
+		op.apply(node);
+		assertEquals(node, original, "operation modified its input node");
+	}
 }
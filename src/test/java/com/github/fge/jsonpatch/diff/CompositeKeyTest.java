@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch.diff;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jackson.JsonLoader;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+
+public final class CompositeKeyTest
+{
+    private static final String[] FIELDS = { "id", "type" };
+
+    @Test
+    public void hashMatchesTheOneOfAFieldMap()
+        throws IOException
+    {
+        final JsonNode element
+            = JsonLoader.fromString("{ \"id\": 12, \"type\": \"user\", \"x\": 1 }");
+        final Map<String, JsonNode> map = new HashMap<String, JsonNode>();
+        map.put("id", element.get("id"));
+        map.put("type", element.get("type"));
+
+        assertEquals(CompositeKey.of(FIELDS, element).hashCode(),
+            map.hashCode());
+    }
+
+    @Test
+    public void keysOnlyDependOnKeyFields()
+        throws IOException
+    {
+        final JsonNode element1
+            = JsonLoader.fromString("{ \"type\": \"user\", \"id\": 12 }");
+        final JsonNode element2
+            = JsonLoader.fromString("{ \"id\": 12, \"type\": \"user\", \"x\": 1 }");
+        final JsonNode element3
+            = JsonLoader.fromString("{ \"id\": 12, \"type\": \"group\" }");
+
+        assertEquals(CompositeKey.of(FIELDS, element1),
+            CompositeKey.of(FIELDS, element2));
+        assertFalse(CompositeKey.of(FIELDS, element1)
+            .equals(CompositeKey.of(FIELDS, element3)));
+    }
+
+    @Test
+    public void missingKeyFieldYieldsNoKey()
+        throws IOException
+    {
+        final JsonNode element = JsonLoader.fromString("{ \"id\": 12 }");
+
+        assertNull(CompositeKey.of(FIELDS, element));
+    }
+}
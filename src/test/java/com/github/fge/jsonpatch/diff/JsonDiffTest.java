@@ -20,6 +20,7 @@
 package com.github.fge.jsonpatch.diff;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.fge.jackson.JsonLoader;
 import com.github.fge.jackson.JsonNumEquals;
 import com.github.fge.jackson.jsonpointer.JsonPointerException;
@@ -77,6 +78,79 @@ public final class JsonDiffTest
         ).isTrue();
     }
 
+    @DataProvider
+    public Iterator<Object[]> getSignedZeros()
+    {
+        final List<Object[]> list = Lists.newArrayList();
+
+        list.add(new Object[] { "{ \"a\": -0.0, \"b\": 1 }",
+            "{ \"b\": 1, \"c\": 0 }",
+            "[ { \"op\": \"move\", \"from\": \"/a\", \"path\": \"/c\" } ]" });
+        list.add(new Object[] { "{ \"a\": -0.0 }", "{ \"a\": -0.0, \"c\": 0 }",
+            "[ { \"op\": \"copy\", \"from\": \"/a\", \"path\": \"/c\" } ]" });
+
+        return list.iterator();
+    }
+
+    /*
+     * A plain ObjectMapper reads -0.0 as a double, which keeps its sign; it
+     * is still equivalent to 0
+     */
+    @Test(dataProvider = "getSignedZeros")
+    public void movesAndCopiesMatchZerosOfEitherSign(final String first,
+        final String second, final String patch)
+        throws IOException
+    {
+        final ObjectMapper mapper = new ObjectMapper();
+        final JsonNode actual = JsonDiff.asJson(mapper.readTree(first),
+            mapper.readTree(second));
+
+        assertThat(actual).isEqualTo(JsonLoader.fromString(patch));
+    }
+
+    @DataProvider
+    public Iterator<Object[]> getEqualCandidates()
+    {
+        final List<Object[]> list = Lists.newArrayList();
+
+        list.add(new Object[] { "{ \"a\": 1, \"b\": 1, \"c\": 1 }",
+            "{ \"d\": 1, \"e\": 1 }",
+            "[ { \"op\": \"remove\", \"path\": \"/c\" },"
+            + " { \"op\": \"move\", \"from\": \"/a\", \"path\": \"/d\" },"
+            + " { \"op\": \"move\", \"from\": \"/b\", \"path\": \"/e\" } ]" });
+        list.add(new Object[] { "{ \"a\": { \"x\": 1 }, \"b\": { \"x\": 1 } }",
+            "{ \"c\": { \"x\": 1 }, \"d\": { \"x\": 1 }, \"e\": { \"x\": 1 } }",
+            "[ { \"op\": \"move\", \"from\": \"/a\", \"path\": \"/c\" },"
+            + " { \"op\": \"move\", \"from\": \"/b\", \"path\": \"/d\" },"
+            + " { \"op\": \"add\", \"path\": \"/e\", \"value\": { \"x\": 1 } } ]" });
+        list.add(new Object[] { "{ \"a\": 1, \"b\": 2 }", "{ \"a\": 1, \"c\": 1 }",
+            "[ { \"op\": \"remove\", \"path\": \"/b\" },"
+            + " { \"op\": \"copy\", \"from\": \"/a\", \"path\": \"/c\" } ]" });
+        list.add(new Object[] { "{ \"a\": 1, \"b\": 1 }", "{ \"a\": 1, \"c\": 1 }",
+            "[ { \"op\": \"move\", \"from\": \"/b\", \"path\": \"/c\" } ]" });
+        list.add(new Object[] { "{ \"a\": 1, \"b\": 1 }",
+            "{ \"b\": 1, \"c\": 1, \"d\": 1 }",
+            "[ { \"op\": \"move\", \"from\": \"/a\", \"path\": \"/c\" },"
+            + " { \"op\": \"copy\", \"from\": \"/b\", \"path\": \"/d\" } ]" });
+
+        return list.iterator();
+    }
+
+    /*
+     * Removed values are moved before unchanged ones are copied, and equal
+     * candidates are used in the order they were found
+     */
+    @Test(dataProvider = "getEqualCandidates")
+    public void movesAndCopiesPickEqualCandidatesInOrder(final String first,
+        final String second, final String patch)
+        throws IOException
+    {
+        final JsonNode actual = JsonDiff.asJson(JsonLoader.fromString(first),
+            JsonLoader.fromString(second));
+
+        assertThat(actual).isEqualTo(JsonLoader.fromString(patch));
+    }
+
     @DataProvider
     public Iterator<Object[]> getLiteralPatches()
     {
@@ -110,4 +184,40 @@ public final class JsonDiffTest
             + "expected: %s\nactual: %s\n", message, expected, actual
         ).isTrue();
     }
+
+    @DataProvider
+    public Iterator<Object[]> getLcsPatches()
+    {
+        final List<Object[]> list = Lists.newArrayList();
+
+        list.add(new Object[] { "[ 1, 2, 3 ]", "[ 0, 1, 2, 3 ]",
+            "[ { \"op\": \"add\", \"path\": \"/0\", \"value\": 0 } ]" });
+        list.add(new Object[] { "[ 1, 2, 3, 4 ]", "[ 1, 3, 4, 5 ]",
+            "[ { \"op\": \"remove\", \"path\": \"/1\" },"
+            + " { \"op\": \"add\", \"path\": \"/3\", \"value\": 5 } ]" });
+        list.add(new Object[] { "[ 1, { \"a\": 1 }, 3 ]",
+            "[ 0, 1, { \"a\": 2 }, 3 ]",
+            "[ { \"op\": \"add\", \"path\": \"/0\", \"value\": 0 },"
+            + " { \"op\": \"replace\", \"path\": \"/2/a\", \"value\": 2 } ]" });
+        list.add(new Object[] { "{ \"a\": [ 1, 2 ], \"b\": 1 }",
+            "{ \"a\": [ 2 ], \"c\": 1 }",
+            "[ { \"op\": \"move\", \"from\": \"/b\", \"path\": \"/c\" },"
+            + " { \"op\": \"remove\", \"path\": \"/a/0\" } ]" });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "getLcsPatches")
+    public void lcsModeEmitsIndexCorrectOperations(final String first,
+        final String second, final String patch)
+        throws IOException
+    {
+        final JsonNode expected = JsonLoader.fromString(patch);
+        final JsonNode actual = JsonDiff.asJson(ArrayDiffMode.LCS,
+            JsonLoader.fromString(first), JsonLoader.fromString(second));
+
+        assertThat(EQUIVALENCE.equivalent(actual, expected))
+            .overridingErrorMessage("expected: %s\nactual: %s\n", expected,
+                actual).isTrue();
+    }
 }
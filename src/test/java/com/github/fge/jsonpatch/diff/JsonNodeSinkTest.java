@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch.diff;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+import com.github.fge.jsonpatch.JsonPatch;
+import com.google.common.collect.Lists;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+
+public final class JsonNodeSinkTest
+{
+    private static final ObjectMapper MAPPER = JacksonUtils.newMapper();
+    private static final JsonNodeFactory FACTORY = JsonNodeFactory.instance;
+
+    @DataProvider
+    public Iterator<Object[]> getValues()
+    {
+        final List<Object[]> list = Lists.newArrayList();
+
+        list.add(new Object[] { FACTORY.numberNode(12) });
+        list.add(new Object[] { FACTORY.numberNode(12L) });
+        list.add(new Object[] { FACTORY.numberNode(1L << 40) });
+        list.add(new Object[] { FACTORY.numberNode((short) 3) });
+        list.add(new Object[] { FACTORY.numberNode(BigInteger.TEN) });
+        list.add(new Object[] {
+            FACTORY.numberNode(BigInteger.ONE.shiftLeft(70)) });
+        list.add(new Object[] { FACTORY.numberNode(2.0) });
+        list.add(new Object[] { FACTORY.numberNode(1.0e20) });
+        list.add(new Object[] { FACTORY.numberNode(1.5f) });
+        list.add(new Object[] { FACTORY.numberNode(Double.NaN) });
+        list.add(new Object[] { FACTORY.numberNode(new BigDecimal("1.50")) });
+        list.add(new Object[] { FACTORY.numberNode(new BigDecimal("1E+3")) });
+        list.add(new Object[] { FACTORY.binaryNode(new byte[] { 1, 2, 3 }) });
+        final ObjectNode node = FACTORY.objectNode();
+        node.put("a", FACTORY.arrayNode().add(2.5).add("x").addNull());
+        list.add(new Object[] { node });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "getValues")
+    public void patchIsTheSerializedPatchReadBack(final JsonNode value)
+        throws IOException
+    {
+        final JsonPointer path = JsonPointer.of("a");
+        final JsonPatchSink patchSink = new JsonPatchSink();
+        final JsonNodeSink nodeSink = new JsonNodeSink();
+
+        patchSink.add(path, value);
+        patchSink.arrayObjectReplace(path, value, null);
+        nodeSink.add(path, value);
+        nodeSink.arrayObjectReplace(path, value, null);
+
+        final JsonPatch patch = patchSink.getPatch();
+        final JsonNode expected
+            = MAPPER.readTree(MAPPER.writeValueAsString(patch));
+        assertEquals(nodeSink.getPatch(), expected);
+        assertEquals(nodeSink.getPatch().toString(), expected.toString());
+    }
+}
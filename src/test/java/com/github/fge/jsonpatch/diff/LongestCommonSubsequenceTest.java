@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch.diff;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.github.fge.jackson.JsonLoader;
+import com.google.common.collect.Lists;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public final class LongestCommonSubsequenceTest
+{
+    private static final JsonNodeFactory FACTORY = JsonNodeFactory.instance;
+
+    @DataProvider
+    public Iterator<Object[]> getRandomArrays()
+    {
+        final Random random = new Random(42L);
+        final List<Object[]> list = Lists.newArrayList();
+
+        for (int i = 0; i < 200; i++)
+            list.add(new Object[] { randomArray(random),
+                randomArray(random) });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "getRandomArrays")
+    public void subsequenceIsCommonAndLongest(final ArrayNode source,
+        final ArrayNode target)
+    {
+        final NodeFingerprints fingerprints = new NodeFingerprints();
+        final List<int[]> matches
+            = LongestCommonSubsequence.of(fingerprints, source, target);
+
+        int previousSource = -1;
+        int previousTarget = -1;
+        for (final int[] match: matches) {
+            assertTrue(match[0] > previousSource);
+            assertTrue(match[1] > previousTarget);
+            assertTrue(fingerprints.equivalent(source.get(match[0]),
+                target.get(match[1])));
+            previousSource = match[0];
+            previousTarget = match[1];
+        }
+        assertEquals(matches.size(), lcsLength(source, target));
+    }
+
+    @Test
+    public void numbersAreMatchedByValue()
+        throws IOException
+    {
+        final JsonNode source = JsonLoader.fromString("[ 1, 2, 3 ]");
+        final JsonNode target = JsonLoader.fromString("[ 0, 1.0, 3.0 ]");
+
+        final List<int[]> matches = LongestCommonSubsequence.of(
+            new NodeFingerprints(), source, target);
+
+        assertEquals(matches.size(), 2);
+        assertEquals(matches.get(0), new int[] { 0, 1 });
+        assertEquals(matches.get(1), new int[] { 2, 2 });
+    }
+
+    private static ArrayNode randomArray(final Random random)
+    {
+        final ArrayNode ret = FACTORY.arrayNode();
+        final int size = random.nextInt(30);
+        for (int i = 0; i < size; i++)
+            ret.add(random.nextInt(4));
+        return ret;
+    }
+
+    private static int lcsLength(final JsonNode source, final JsonNode target)
+    {
+        final int[][] lengths = new int[source.size() + 1][target.size() + 1];
+        for (int i = 1; i <= source.size(); i++)
+            for (int j = 1; j <= target.size(); j++)
+                lengths[i][j] = source.get(i - 1).equals(target.get(j - 1))
+                    ? lengths[i - 1][j - 1] + 1
+                    : Math.max(lengths[i - 1][j], lengths[i][j - 1]);
+        return lengths[source.size()][target.size()];
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch.diff;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.fge.jackson.JsonLoader;
+import com.google.common.collect.Lists;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public final class NodeFingerprintsTest
+{
+    @DataProvider
+    public Iterator<Object[]> getEquivalentValues()
+        throws IOException
+    {
+        final List<Object[]> list = Lists.newArrayList();
+
+        list.add(new Object[] { "1", "1.0" });
+        list.add(new Object[] { "{ \"a\": 1, \"b\": [ 2, 3 ] }",
+            "{ \"b\": [ 2.0, 3 ], \"a\": 1 }" });
+        list.add(new Object[] { "[ { \"x\": null, \"y\": true } ]",
+            "[ { \"y\": true, \"x\": null } ]" });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "getEquivalentValues")
+    public void equivalentValuesHaveTheSameFingerprint(final String first,
+        final String second)
+        throws IOException
+    {
+        final NodeFingerprints fingerprints = new NodeFingerprints();
+        final JsonNode node1 = JsonLoader.fromString(first);
+        final JsonNode node2 = JsonLoader.fromString(second);
+
+        assertEquals(fingerprints.get(node1), fingerprints.get(node2));
+        assertTrue(fingerprints.equivalent(node1, node2));
+        assertEquals(fingerprints.key(node1), fingerprints.key(node2));
+    }
+
+    /*
+     * Unlike JsonLoader, a plain ObjectMapper reads -0.0 as a double, which
+     * keeps its sign
+     */
+    @Test
+    public void negativeZeroIsEquivalentToZero()
+        throws IOException
+    {
+        final ObjectMapper mapper = new ObjectMapper();
+        final NodeFingerprints fingerprints = new NodeFingerprints();
+        final JsonNode node1 = mapper.readTree("{ \"a\": -0.0 }");
+        final JsonNode node2 = mapper.readTree("{ \"a\": 0 }");
+
+        assertEquals(fingerprints.get(node1.get("a")),
+            fingerprints.get(node2.get("a")));
+        assertTrue(fingerprints.equivalent(node1, node2));
+        assertEquals(fingerprints.key(node1), fingerprints.key(node2));
+        assertEquals(JsonDiff.asJson(node1, node2).size(), 0);
+    }
+
+    @Test
+    public void swappedMemberValuesAreNotEquivalent()
+        throws IOException
+    {
+        final NodeFingerprints fingerprints = new NodeFingerprints();
+        final JsonNode node1 = JsonLoader.fromString("{ \"a\": 1, \"b\": 2 }");
+        final JsonNode node2 = JsonLoader.fromString("{ \"a\": 2, \"b\": 1 }");
+
+        assertFalse(fingerprints.get(node1) == fingerprints.get(node2));
+        assertFalse(fingerprints.equivalent(node1, node2));
+    }
+}
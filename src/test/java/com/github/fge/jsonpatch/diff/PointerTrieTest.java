@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonpatch.diff;
+
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+import com.github.fge.jackson.jsonpointer.JsonPointerException;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public final class PointerTrieTest
+{
+    @Test
+    public void wildcardsMatchAnyToken()
+        throws JsonPointerException
+    {
+        final PointerTrie root = DiffConfig.newBuilder()
+            .setArrayKey(new JsonPointer("/Accounts/*/Roles"), "id")
+            .addIgnoredPointer(new JsonPointer("/*/password"))
+            .freeze().getTrie();
+
+        assertEquals(root.child("Accounts").element(3).child("Roles")
+            .getArrayKey().getField(), "id");
+        assertEquals(root.child("Accounts").child("x").child("Roles")
+            .getArrayKey().getField(), "id");
+        assertNull(root.child("Accounts").element(3).child("Groups")
+            .getArrayKey());
+        assertTrue(root.child("Users").child("password").isIgnored());
+        assertFalse(root.child("Users").child("name").isIgnored());
+    }
+
+    @Test
+    public void exactTokensWinFromTheRight()
+        throws JsonPointerException
+    {
+        final PointerTrie root = DiffConfig.newBuilder()
+            .setArrayKey(new JsonPointer("/a/*"), "wildcardLast")
+            .setArrayKey(new JsonPointer("/*/b"), "exactLast")
+            .setArrayKey(new JsonPointer("/a/c"), "exact")
+            .freeze().getTrie();
+
+        assertEquals(root.child("a").child("b").getArrayKey().getField(),
+            "exactLast");
+        assertEquals(root.child("a").child("c").getArrayKey().getField(),
+            "exact");
+        assertEquals(root.child("a").child("d").getArrayKey().getField(),
+            "wildcardLast");
+        assertEquals(root.child("z").child("b").getArrayKey().getField(),
+            "exactLast");
+        assertNull(root.child("z").child("d").getArrayKey());
+    }
+
+    @Test
+    public void ignoredDescendantsAreKnownAtAncestors()
+        throws JsonPointerException
+    {
+        final PointerTrie root = DiffConfig.newBuilder()
+            .addIgnoredPointer(new JsonPointer("/a/*/password"))
+            .freeze().getTrie();
+
+        assertTrue(root.hasIgnoredDescendants());
+        assertTrue(root.child("a").hasIgnoredDescendants());
+        assertTrue(root.child("a").element(2).hasIgnoredDescendants());
+        assertFalse(root.child("a").element(2).child("password")
+            .hasIgnoredDescendants());
+        assertFalse(root.child("b").hasIgnoredDescendants());
+    }
+
+    @Test
+    public void settingsWithinValuesAreKnownAtAncestors()
+        throws JsonPointerException
+    {
+        final PointerTrie root = DiffConfig.newBuilder()
+            .setArrayKey(new JsonPointer("/Accounts"), "id")
+            .setArrayKey(new JsonPointer("/Accounts/*/Roles"), "Role")
+            .freeze().getTrie();
+
+        assertTrue(root.child("Accounts").hasSettingsWithin());
+        assertTrue(root.child("Accounts").element(0).hasSettingsWithin());
+        assertTrue(root.child("Accounts").element(0).child("Roles")
+            .hasSettingsWithin());
+        assertFalse(root.child("Accounts").element(0).child("Groups")
+            .hasSettingsWithin());
+        assertFalse(root.child("Other").hasSettingsWithin());
+    }
+
+    @Test
+    public void includedPointersRestrictTheirAncestors()
+        throws JsonPointerException
+    {
+        final PointerTrie root = DiffConfig.newBuilder()
+            .addIncludedPointer(new JsonPointer("/Users/*/name"))
+            .addIncludedPointer(new JsonPointer("/Groups"))
+            .addIgnoredPointer(new JsonPointer("/Groups/*/audit"))
+            .setArrayKey(new JsonPointer("/Other"), "id")
+            .freeze().getTrie();
+
+        assertTrue(root.hasIgnoredDescendants());
+        assertTrue(root.child("Other").isIgnored());
+        assertTrue(root.child("Roles").isIgnored());
+        assertFalse(root.child("Users").isIgnored());
+        assertTrue(root.child("Users").element(0).child("mail").isIgnored());
+        assertFalse(root.child("Users").element(0).child("name").isIgnored());
+        assertFalse(root.child("Users").element(0).child("name")
+            .hasIgnoredDescendants());
+        assertFalse(root.child("Groups").element(1).child("id").isIgnored());
+        assertTrue(root.child("Groups").element(1).child("audit").isIgnored());
+    }
+}
@@ -0,0 +1,140 @@
+package com.github.fge.jsonpatch.diffcustom;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeTest;
+import org.testng.annotations.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+import com.github.fge.jackson.jsonpointer.JsonPointerException;
+import com.github.fge.jsonpatch.JsonDiffException;
+import com.github.fge.jsonpatch.diff.JsonDiff;
+
+public class TestArrayElementMatching {
+	private ObjectMapper objectMapper;
+	private Map<JsonPointer, Object> noKey;
+	private Map<JsonPointer, Object> idKey;
+	private Map<JsonPointer, Object> idKeySet;
+
+	@BeforeTest
+	public void initialize() throws JsonPointerException {
+		objectMapper = new ObjectMapper();
+		noKey = new HashMap<>();
+		noKey.put(new JsonPointer("/x"), null);
+		idKey = new HashMap<>();
+		idKey.put(new JsonPointer("/x"), "id");
+		idKeySet = new HashMap<>();
+		idKeySet.put(new JsonPointer("/x"), Collections.singleton("id"));
+	}
+
+	private JsonNode diff(String source, String target, Map<JsonPointer, ?> keys)
+			throws JsonDiffException, IOException {
+		return JsonDiff.asJson(objectMapper.readTree(source), objectMapper.readTree(target), keys);
+	}
+
+	@Test
+	public void testRemovedDuplicateRemovesEveryCopy() throws JsonDiffException, IOException {
+		JsonNode patch = diff("{\"x\":[1,1,2]}", "{\"x\":[1,2]}", noKey);
+
+		Assert.assertEquals(patch, objectMapper.readTree("["
+				+ "{\"op\":\"remove\",\"path\":\"/x/0\",\"original_value\":1},"
+				+ "{\"op\":\"remove\",\"path\":\"/x/1\",\"original_value\":1}]"));
+	}
+
+	@Test
+	public void testAddedDuplicateIsCopied() throws JsonDiffException, IOException {
+		JsonNode patch = diff("{\"x\":[1]}", "{\"x\":[1,1]}", noKey);
+
+		Assert.assertEquals(patch, objectMapper.readTree("[{\"op\":\"copy\",\"path\":\"/x/-\",\"from\":\"/x/0\"}]"));
+	}
+
+	@Test
+	public void testDuplicatesDifferingInMemberOrderAreEqual() throws JsonDiffException, IOException {
+		JsonNode removed = diff("{\"x\":[{\"a\":1,\"b\":2},{\"b\":2,\"a\":1},3]}", "{\"x\":[{\"b\":2,\"a\":1},3]}",
+				noKey);
+		JsonNode added = diff("{\"x\":[{\"a\":1,\"b\":2}]}", "{\"x\":[{\"b\":2,\"a\":1},{\"a\":1,\"b\":2}]}", noKey);
+
+		Assert.assertEquals(removed, objectMapper.readTree("["
+				+ "{\"op\":\"remove\",\"path\":\"/x/0\",\"original_value\":{\"a\":1,\"b\":2}},"
+				+ "{\"op\":\"remove\",\"path\":\"/x/1\",\"original_value\":{\"a\":1,\"b\":2}}]"));
+		Assert.assertEquals(added, objectMapper.readTree("[{\"op\":\"copy\",\"path\":\"/x/-\",\"from\":\"/x/0\"}]"));
+	}
+
+	@Test
+	public void testDuplicateTargetKeysAreAllMatched() throws JsonDiffException, IOException {
+		JsonNode patch = diff("{\"x\":[{\"id\":\"a\",\"v\":1},{\"id\":\"b\"}]}",
+				"{\"x\":[{\"id\":\"b\"},{\"id\":\"a\",\"v\":2},{\"id\":\"a\",\"v\":3}]}", idKey);
+
+		Assert.assertEquals(patch, objectMapper.readTree("["
+				+ "{\"op\":\"replace\",\"path\":\"/x/0/v\",\"value\":2,\"original_value\":{\"id\":\"a\",\"v\":1}},"
+				+ "{\"op\":\"replace\",\"path\":\"/x/0/v\",\"value\":3,\"original_value\":{\"id\":\"a\",\"v\":1}}]"));
+	}
+
+	@Test
+	public void testDuplicateSourceKeysAreAllMatched() throws JsonDiffException, IOException {
+		JsonNode patch = diff("{\"x\":[{\"id\":\"a\",\"v\":1},{\"id\":\"a\",\"v\":2},{\"id\":\"b\"}]}",
+				"{\"x\":[{\"id\":\"a\",\"v\":2}]}", idKey);
+
+		Assert.assertEquals(patch, objectMapper.readTree("["
+				+ "{\"op\":\"replace\",\"path\":\"/x/0/v\",\"value\":2,\"original_value\":{\"id\":\"a\",\"v\":1}},"
+				+ "{\"op\":\"remove\",\"path\":\"/x/2\",\"original_value\":{\"id\":\"b\"}}]"));
+	}
+
+	@Test(expectedExceptions = JsonDiffException.class)
+	public void testMissingSourceKeyFails() throws JsonDiffException, IOException {
+		diff("{\"x\":[{\"v\":1},{\"id\":\"a\"}]}", "{\"x\":[{\"id\":\"a\",\"v\":2}]}", idKey);
+	}
+
+	@Test(expectedExceptions = JsonDiffException.class)
+	public void testMissingTargetKeyFails() throws JsonDiffException, IOException {
+		diff("{\"x\":[{\"id\":\"a\"}]}", "{\"x\":[{\"v\":1}]}", idKey);
+	}
+
+	@Test
+	public void testNullSourceKeyMatchesNothing() throws JsonDiffException, IOException {
+		JsonNode patch = diff("{\"x\":[{\"id\":null,\"v\":1}]}", "{\"x\":[{\"id\":\"a\",\"v\":2}]}", idKey);
+
+		Assert.assertEquals(patch, objectMapper.readTree("["
+				+ "{\"op\":\"remove\",\"path\":\"/x/0\",\"original_value\":{\"id\":null,\"v\":1}},"
+				+ "{\"op\":\"add\",\"path\":\"/x/-\",\"value\":{\"id\":\"a\",\"v\":2}}]"));
+	}
+
+	@Test(expectedExceptions = JsonDiffException.class)
+	public void testNullTargetKeyFails() throws JsonDiffException, IOException {
+		diff("{\"x\":[{\"id\":\"a\",\"v\":2}]}", "{\"x\":[{\"id\":null,\"v\":1}]}", idKey);
+	}
+
+	@Test(expectedExceptions = JsonDiffException.class)
+	public void testNumericTargetKeyFails() throws JsonDiffException, IOException {
+		diff("{\"x\":[{\"id\":1,\"v\":1}]}", "{\"x\":[{\"id\":1.0,\"v\":2}]}", idKey);
+	}
+
+	@Test
+	public void testNumericSourceKeyIsMatchedAsText() throws JsonDiffException, IOException {
+		JsonNode sameText = diff("{\"x\":[{\"id\":1,\"v\":1}]}", "{\"x\":[{\"id\":\"1\",\"v\":2}]}", idKey);
+		JsonNode otherText = diff("{\"x\":[{\"id\":1.0,\"v\":1}]}", "{\"x\":[{\"id\":\"1\",\"v\":2}]}", idKey);
+
+		// Keys match as text, but the elements are then told apart by type
+		Assert.assertEquals(sameText.size(), 0);
+		Assert.assertEquals(otherText.size(), 2);
+		Assert.assertEquals(otherText.get(0).get("op").textValue(), "remove");
+		Assert.assertEquals(otherText.get(1).get("op").textValue(), "add");
+	}
+
+	@Test
+	public void testNumericallyEqualKeysOfDifferentTypesDoNotMatch() throws JsonDiffException, IOException {
+		JsonNode patch = diff("{\"x\":[{\"id\":1,\"v\":1}]}", "{\"x\":[{\"id\":1.0,\"v\":2}]}", idKeySet);
+
+		Assert.assertEquals(patch.size(), 2);
+		Assert.assertEquals(patch.get(0).get("op").textValue(), "remove");
+		Assert.assertEquals(patch.get(0).get("path").textValue(), "/x/0");
+		Assert.assertEquals(patch.get(1).get("op").textValue(), "add");
+		Assert.assertEquals(patch.get(1).get("path").textValue(), "/x/-");
+	}
+}
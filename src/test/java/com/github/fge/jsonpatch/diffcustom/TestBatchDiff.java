@@ -0,0 +1,133 @@
+package com.github.fge.jsonpatch.diffcustom;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterTest;
+import org.testng.annotations.BeforeTest;
+import org.testng.annotations.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+import com.github.fge.jackson.jsonpointer.JsonPointerException;
+import com.github.fge.jsonpatch.JsonDiffException;
+import com.github.fge.jsonpatch.diff.BatchDiff;
+import com.github.fge.jsonpatch.diff.BatchDiffCallback;
+import com.github.fge.jsonpatch.diff.DiffConfig;
+import com.github.fge.jsonpatch.diff.JsonDiff;
+import com.google.common.collect.Maps;
+
+public class TestBatchDiff {
+	private ObjectMapper objectMapper;
+	private ExecutorService executor;
+
+	@BeforeTest
+	public void initialize() {
+		objectMapper = new ObjectMapper();
+		executor = Executors.newFixedThreadPool(4);
+	}
+
+	@AfterTest
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+	@Test
+	public void patchesAreInTheOrderOfTheirPairs() throws JsonDiffException, IOException {
+		List<Map.Entry<JsonNode, JsonNode>> pairs = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			ObjectNode source = objectMapper.createObjectNode().put("a", i);
+			ObjectNode target = objectMapper.createObjectNode().put("a", i);
+			for (int j = 0; j < i % 7; j++)
+				target.put("b" + j, j);
+			pairs.add(Maps.<JsonNode, JsonNode> immutableEntry(source, target));
+		}
+		BatchDiff batch = JsonDiff.batch(DiffConfig.byDefault(), executor, 8);
+
+		List<JsonNode> patches = batch.asJson(pairs);
+
+		Assert.assertEquals(patches.size(), pairs.size());
+		for (int i = 0; i < pairs.size(); i++)
+			Assert.assertEquals(patches.get(i),
+					JsonDiff.asJson(DiffConfig.byDefault(), pairs.get(i).getKey(), pairs.get(i).getValue()));
+	}
+
+	@Test
+	public void inFlightDiffsAreBounded() throws JsonDiffException, IOException {
+		final AtomicInteger submitted = new AtomicInteger();
+		final AtomicInteger maxAhead = new AtomicInteger();
+		final List<Map.Entry<JsonNode, JsonNode>> pairs = new ArrayList<>();
+		for (int i = 0; i < 50; i++)
+			pairs.add(Maps.<JsonNode, JsonNode> immutableEntry(objectMapper.createObjectNode().put("a", i),
+					objectMapper.createObjectNode().put("a", i + 1)));
+		Iterable<Map.Entry<JsonNode, JsonNode>> counted = new Iterable<Map.Entry<JsonNode, JsonNode>>() {
+			@Override
+			public Iterator<Map.Entry<JsonNode, JsonNode>> iterator() {
+				final Iterator<Map.Entry<JsonNode, JsonNode>> iterator = pairs.iterator();
+				return new Iterator<Map.Entry<JsonNode, JsonNode>>() {
+					@Override
+					public boolean hasNext() {
+						return iterator.hasNext();
+					}
+
+					@Override
+					public Map.Entry<JsonNode, JsonNode> next() {
+						submitted.incrementAndGet();
+						return iterator.next();
+					}
+
+					@Override
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+		};
+
+		JsonDiff.batch(DiffConfig.byDefault(), executor, 3).diff(counted, new BatchDiffCallback() {
+			@Override
+			public void patch(long index, JsonNode patch) {
+				maxAhead.set(Math.max(maxAhead.get(), submitted.get() - (int) index));
+			}
+		});
+
+		Assert.assertEquals(maxAhead.get(), 3);
+	}
+
+	@Test
+	public void unboundedBatchDoesNotPreallocate() throws JsonDiffException {
+		List<Map.Entry<JsonNode, JsonNode>> pairs = new ArrayList<>();
+		pairs.add(Maps.<JsonNode, JsonNode> immutableEntry(objectMapper.createObjectNode().put("a", 1),
+				objectMapper.createObjectNode().put("a", 2)));
+
+		List<JsonNode> patches = JsonDiff.batch(DiffConfig.byDefault(), executor, Integer.MAX_VALUE).asJson(pairs);
+
+		Assert.assertEquals(patches.size(), 1);
+	}
+
+	@Test(expectedExceptions = JsonDiffException.class)
+	public void failedDiffStopsTheBatch() throws JsonDiffException, IOException, JsonPointerException {
+		DiffConfig config = DiffConfig.newBuilder().setArrayKey(new JsonPointer("/a"), "id").freeze();
+		List<Map.Entry<JsonNode, JsonNode>> pairs = new ArrayList<>();
+		pairs.add(Maps.<JsonNode, JsonNode> immutableEntry(objectMapper.readTree("{\"a\":[{\"id\":\"x\"}]}"),
+				objectMapper.readTree("{\"a\":[{\"id\":\"x\",\"v\":1}]}")));
+		pairs.add(Maps.<JsonNode, JsonNode> immutableEntry(objectMapper.readTree("{\"a\":[{\"v\":1}]}"),
+				objectMapper.readTree("{\"a\":[{\"id\":\"x\"}]}")));
+
+		JsonDiff.batch(config, executor, 2).asJson(pairs);
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void maxInFlightMustBePositive() {
+		JsonDiff.batch(DiffConfig.byDefault(), executor, 0);
+	}
+}
@@ -0,0 +1,125 @@
+package com.github.fge.jsonpatch.diffcustom;
+
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeTest;
+import org.testng.annotations.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+import com.github.fge.jsonpatch.JsonDiffCancelledException;
+import com.github.fge.jsonpatch.JsonDiffException;
+import com.github.fge.jsonpatch.diff.CancellationToken;
+import com.github.fge.jsonpatch.diff.DiffConfig;
+import com.github.fge.jsonpatch.diff.DiffSink;
+import com.github.fge.jsonpatch.diff.JsonDiff;
+
+public class TestCancellation {
+	private ObjectMapper objectMapper;
+	private JsonNode beforeNode;
+	private JsonNode afterNode;
+
+	@BeforeTest
+	public void initialize() throws IOException {
+		objectMapper = new ObjectMapper();
+		beforeNode = objectMapper.readTree("{\"a\":1,\"b\":{\"c\":2,\"d\":[1,2]},\"e\":{\"f\":3}}");
+		afterNode = objectMapper.readTree("{\"a\":2,\"b\":{\"c\":3,\"d\":[2,3]},\"e\":{\"f\":4}}");
+	}
+
+	@Test
+	public void uncancelledTokenDoesNotChangeTheDiff() throws JsonDiffException {
+		CancellationToken token = CancellationToken.withTimeout(1, TimeUnit.HOURS);
+
+		Assert.assertEquals(JsonDiff.asJson(DiffConfig.byDefault(), beforeNode, afterNode, token),
+				JsonDiff.asJson(DiffConfig.byDefault(), beforeNode, afterNode));
+	}
+
+	@Test(expectedExceptions = JsonDiffCancelledException.class)
+	public void cancelledTokenStopsTheDiff() throws JsonDiffException {
+		CancellationToken token = CancellationToken.newToken();
+		token.cancel();
+
+		JsonDiff.asJsonPatch(DiffConfig.byDefault(), beforeNode, afterNode, token);
+	}
+
+	@Test(expectedExceptions = JsonDiffCancelledException.class)
+	public void expiredDeadlineStopsTheDiff() throws JsonDiffException {
+		CancellationToken token = CancellationToken.withTimeout(0, TimeUnit.NANOSECONDS);
+
+		JsonDiff.asJson(DiffConfig.byDefault(), beforeNode, afterNode, token);
+	}
+
+	@Test
+	public void tokenCancelledDuringTheDiffStopsIt() throws JsonDiffException, IOException {
+		final CancellationToken token = CancellationToken.newToken();
+		final AtomicInteger operations = new AtomicInteger();
+		DiffSink sink = new DiffSink() {
+			private void operation() {
+				operations.incrementAndGet();
+				token.cancel();
+			}
+
+			@Override
+			public void add(JsonPointer path, JsonNode value) {
+				operation();
+			}
+
+			@Override
+			public void remove(JsonPointer path, JsonNode oldValue) {
+				operation();
+			}
+
+			@Override
+			public void replace(JsonPointer path, JsonNode oldValue, JsonNode value) {
+				operation();
+			}
+
+			@Override
+			public void move(JsonPointer from, JsonPointer path) {
+				operation();
+			}
+
+			@Override
+			public void copy(JsonPointer from, JsonPointer path) {
+				operation();
+			}
+
+			@Override
+			public void arrayObjectRemove(JsonPointer path, JsonNode originalValue) {
+				operation();
+			}
+
+			@Override
+			public void arrayObjectReplace(JsonPointer path, JsonNode originalValue, JsonNode value) {
+				operation();
+			}
+		};
+		DiffConfig config = DiffConfig.newBuilder().setFactoring(false).freeze();
+
+		try {
+			JsonDiff.diff(config, beforeNode, afterNode, sink, token);
+			Assert.fail("diff was not cancelled");
+		} catch (JsonDiffCancelledException e) {
+			Assert.assertEquals(operations.get(), 1);
+		}
+	}
+
+	@Test(expectedExceptions = JsonDiffCancelledException.class)
+	public void cancelledTokenStopsParallelDiffs() throws JsonDiffException {
+		ForkJoinPool pool = new ForkJoinPool(2);
+		try {
+			CancellationToken token = CancellationToken.newToken();
+			token.cancel();
+			DiffConfig config = DiffConfig.newBuilder().setParallelism(pool, 1).freeze();
+
+			JsonDiff.asJson(config, beforeNode, afterNode, token);
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
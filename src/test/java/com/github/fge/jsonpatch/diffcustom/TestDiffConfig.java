@@ -0,0 +1,289 @@
+package com.github.fge.jsonpatch.diffcustom;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeTest;
+import org.testng.annotations.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+import com.github.fge.jackson.jsonpointer.JsonPointerException;
+import com.github.fge.jsonpatch.JsonDiffException;
+import com.github.fge.jsonpatch.diff.DiffConfig;
+import com.github.fge.jsonpatch.diff.JsonDiff;
+
+public class TestDiffConfig {
+	private Map<JsonPointer, Set<String>> compositeKeyFields;
+	private DiffConfig compositeConfig;
+	private ObjectMapper objectMapper;
+
+	@BeforeTest
+	public void initialize() throws JsonPointerException {
+		objectMapper = new ObjectMapper();
+
+		compositeKeyFields = new HashMap<>();
+		Set<String> set1 = new HashSet<>();
+		set1.add("Profile");
+		Set<String> set2 = new HashSet<>();
+		set2.add("b");
+		set2.add("Group");
+		compositeKeyFields.put(new JsonPointer("/Profiles"), set1);
+		compositeKeyFields.put(new JsonPointer("/Grouppp"), set2);
+		compositeKeyFields.put(new JsonPointer("/IT Resource"), null);
+
+		compositeConfig = DiffConfig.newBuilder()
+				.setCompositeArrayKey(new JsonPointer("/Profiles"), set1)
+				.setCompositeArrayKey(new JsonPointer("/Grouppp"), set2)
+				.freeze();
+	}
+
+	@Test(dataProvider = "Provide Data To Json-Diff 1", dataProviderClass = JsonDataProvider.class)
+	public void builtConfigDiffsLikeKeyFieldsMap(JsonNode beforeNode, JsonNode afterNode) throws JsonDiffException {
+		JsonNode expectedPatch = JsonDiff.asJson(beforeNode, afterNode, compositeKeyFields);
+		JsonNode patch = JsonDiff.asJson(compositeConfig, beforeNode, afterNode);
+
+		Assert.assertEquals(patch, expectedPatch);
+	}
+
+	@Test(dataProvider = "Provide Data To Json-Diff 1", dataProviderClass = JsonDataProvider.class)
+	public void parallelDiffIsSequentialDiff(JsonNode beforeNode, JsonNode afterNode) throws JsonDiffException {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			DiffConfig parallelConfig = compositeConfig.thaw().setParallelism(pool, 2).freeze();
+
+			Assert.assertEquals(JsonDiff.asJson(parallelConfig, beforeNode, afterNode),
+					JsonDiff.asJson(compositeConfig, beforeNode, afterNode));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void ignoredMembersAreNotDiffed() throws JsonDiffException, IOException, JsonPointerException {
+		JsonNode beforeNode = objectMapper.readTree("{\"a\":1,\"b\":{\"c\":2},\"d\":3}");
+		JsonNode afterNode = objectMapper.readTree("{\"a\":2,\"b\":{\"c\":3},\"e\":4}");
+		DiffConfig config = DiffConfig.newBuilder().addIgnoredPointer(new JsonPointer("/b/c"))
+				.addIgnoredPointer(new JsonPointer("/d")).addIgnoredPointer(new JsonPointer("/e")).freeze();
+
+		JsonNode patch = JsonDiff.asJson(config, beforeNode, afterNode);
+
+		Assert.assertEquals(patch,
+				objectMapper.readTree("[{\"op\":\"replace\",\"path\":\"/a\",\"value\":2}]"));
+	}
+
+	@Test
+	public void wildcardPointersMatchNestedArrays() throws JsonDiffException, IOException, JsonPointerException {
+		JsonNode beforeNode = objectMapper
+				.readTree("{\"Tenants\":{\"t1\":{\"Roles\":[{\"id\":\"r1\",\"v\":1},{\"id\":\"r2\",\"v\":1}]}}}");
+		JsonNode afterNode = objectMapper
+				.readTree("{\"Tenants\":{\"t1\":{\"Roles\":[{\"id\":\"r2\",\"v\":1},{\"id\":\"r1\",\"v\":2}]}}}");
+		Map<JsonPointer, String> keyFields = new HashMap<>();
+		keyFields.put(new JsonPointer("/Tenants/t1/Roles"), "id");
+		DiffConfig config = DiffConfig.newBuilder().setArrayKey(new JsonPointer("/Tenants/*/Roles"), "id").freeze();
+
+		JsonNode patch = JsonDiff.asJson(config, beforeNode, afterNode);
+
+		Assert.assertEquals(patch, JsonDiff.asJson(beforeNode, afterNode, keyFields));
+		Assert.assertEquals(patch.size(), 1);
+	}
+
+	@Test
+	public void keyFieldsWithOnlyNullValuesDiffArraysAsMultisets()
+			throws JsonDiffException, IOException, JsonPointerException {
+		Map<JsonPointer, String> keyFields = new HashMap<>();
+		keyFields.put(new JsonPointer("/a"), null);
+		JsonNode beforeNode = objectMapper.readTree("{\"a\":[1,2]}");
+		JsonNode afterNode = objectMapper.readTree("{\"a\":[2,3]}");
+
+		Assert.assertEquals(JsonDiff.asJson(beforeNode, afterNode, keyFields),
+				JsonDiff.asJson(DiffConfig.byDefault(), beforeNode, afterNode));
+		Assert.assertEquals(JsonDiff.asJson(beforeNode, afterNode, keyFields).size(), 2);
+	}
+
+	@Test
+	public void onlyIncludedMembersAreDiffed() throws JsonDiffException, IOException, JsonPointerException {
+		JsonNode beforeNode = objectMapper.readTree("{\"a\":1,\"b\":{\"c\":2,\"d\":3},\"e\":4}");
+		JsonNode afterNode = objectMapper.readTree("{\"a\":2,\"b\":{\"c\":3,\"d\":4},\"f\":5}");
+		DiffConfig config = DiffConfig.newBuilder().addIncludedPointer(new JsonPointer("/b/c")).freeze();
+
+		JsonNode patch = JsonDiff.asJson(config, beforeNode, afterNode);
+
+		Assert.assertEquals(patch, objectMapper.readTree("[{\"op\":\"replace\",\"path\":\"/b/c\",\"value\":3}]"));
+	}
+
+	@Test
+	public void ignoredMembersOfKeyedElementsAreNotDiffed()
+			throws JsonDiffException, IOException, JsonPointerException {
+		JsonNode beforeNode = objectMapper
+				.readTree("{\"Roles\":[{\"id\":\"r1\",\"v\":1,\"at\":1},{\"id\":\"r2\",\"v\":1,\"at\":1}]}");
+		JsonNode afterNode = objectMapper
+				.readTree("{\"Roles\":[{\"id\":\"r1\",\"v\":1,\"at\":2},{\"id\":\"r2\",\"v\":2,\"at\":2}]}");
+		DiffConfig config = DiffConfig.newBuilder().setArrayKey(new JsonPointer("/Roles"), "id")
+				.addIgnoredPointer(new JsonPointer("/Roles/*/at")).freeze();
+
+		JsonNode patch = JsonDiff.asJson(config, beforeNode, afterNode);
+
+		Assert.assertEquals(patch.size(), 1);
+		Assert.assertEquals(patch.get(0).get("path").textValue(), "/Roles/1/v");
+	}
+
+	@Test
+	public void ignoredMembersAreNeitherHashedNorCompared()
+			throws JsonDiffException, IOException, JsonPointerException {
+		ObjectNode beforeNode = (ObjectNode) objectMapper.readTree("{\"a\":1,\"b\":{\"c\":1}}");
+		ObjectNode afterNode = beforeNode.deepCopy();
+		((ObjectNode) beforeNode.get("b")).putPOJO("blob", new Unhashable());
+		((ObjectNode) afterNode.get("b")).putPOJO("blob", new Unhashable());
+		afterNode.put("a", 2);
+		DiffConfig config = DiffConfig.newBuilder().addIgnoredPointer(new JsonPointer("/b/blob")).freeze();
+
+		JsonNode patch = JsonDiff.asJson(config, beforeNode, afterNode);
+
+		Assert.assertEquals(patch, objectMapper.readTree("[{\"op\":\"replace\",\"path\":\"/a\",\"value\":2}]"));
+	}
+
+	@Test
+	public void ignoredMembersOfUnkeyedElementsAreNotDiffed()
+			throws JsonDiffException, IOException, JsonPointerException {
+		JsonNode beforeNode = objectMapper.readTree("{\"Accounts\":[{\"id\":\"a\",\"lastLogin\":1},"
+				+ "{\"id\":\"b\",\"lastLogin\":1}]}");
+		JsonNode afterNode = objectMapper.readTree("{\"Accounts\":[{\"id\":\"b\",\"lastLogin\":2},"
+				+ "{\"id\":\"a\",\"lastLogin\":2}]}");
+		JsonNode changedNode = objectMapper.readTree("{\"Accounts\":[{\"id\":\"a\",\"lastLogin\":2},"
+				+ "{\"id\":\"c\",\"lastLogin\":2}]}");
+		DiffConfig config = DiffConfig.newBuilder().addIgnoredPointer(new JsonPointer("/Accounts/*/lastLogin"))
+				.freeze();
+
+		JsonNode patch = JsonDiff.asJson(config, beforeNode, afterNode);
+		JsonNode changedPatch = JsonDiff.asJson(config, beforeNode, changedNode);
+
+		Assert.assertEquals(patch.size(), 0);
+		Assert.assertEquals(changedPatch, objectMapper.readTree("[{\"op\":\"remove\",\"path\":\"/Accounts/1\","
+				+ "\"original_value\":{\"id\":\"b\",\"lastLogin\":1}},{\"op\":\"add\",\"path\":\"/Accounts/-\","
+				+ "\"value\":{\"id\":\"c\",\"lastLogin\":2}}]"));
+	}
+
+	@Test
+	public void ignoredMembersAreNotHashedInParallelDiffs()
+			throws JsonDiffException, IOException, JsonPointerException {
+		ObjectNode beforeNode = (ObjectNode) objectMapper.readTree("{\"a\":1,\"b\":{\"c\":1},"
+				+ "\"l\":[{\"c\":1},{\"c\":2}]}");
+		ObjectNode afterNode = beforeNode.deepCopy();
+		for (ObjectNode node : new ObjectNode[] { beforeNode, afterNode }) {
+			((ObjectNode) node.get("b")).putPOJO("blob", new Unhashable());
+			for (JsonNode element : node.get("l"))
+				((ObjectNode) element).putPOJO("blob", new Unhashable());
+		}
+		afterNode.put("a", 2);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			DiffConfig config = DiffConfig.newBuilder().addIgnoredPointer(new JsonPointer("/b/blob"))
+					.addIgnoredPointer(new JsonPointer("/l/*/blob")).setParallelism(pool, 1).freeze();
+
+			JsonNode patch = JsonDiff.asJson(config, beforeNode, afterNode);
+
+			Assert.assertEquals(patch, objectMapper.readTree("[{\"op\":\"replace\",\"path\":\"/a\",\"value\":2}]"));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void expensiveContainersAreReplacedWhole() throws JsonDiffException, IOException {
+		JsonNode beforeNode = objectMapper.readTree("{\"a\":{\"x\":1,\"y\":2,\"z\":3},\"b\":{\"x\":1,\"y\":2}}");
+		JsonNode afterNode = objectMapper.readTree("{\"a\":{\"x\":4,\"y\":5,\"z\":6},\"b\":{\"x\":1,\"y\":3}}");
+		DiffConfig config = DiffConfig.newBuilder().setReplaceRatio(1).freeze();
+
+		JsonNode patch = JsonDiff.asJson(config, beforeNode, afterNode);
+
+		Assert.assertEquals(patch, objectMapper.readTree("[{\"op\":\"replace\",\"path\":\"/a\",\"value\":"
+				+ "{\"x\":4,\"y\":5,\"z\":6}},{\"op\":\"replace\",\"path\":\"/b/y\",\"value\":3}]"));
+		Assert.assertEquals(JsonDiff.asJson(config.thaw().clearReplaceRatio().freeze(), beforeNode, afterNode).size(), 4);
+	}
+
+	@Test
+	public void containersWithIgnoredMembersAreNeverReplacedWhole()
+			throws JsonDiffException, IOException, JsonPointerException {
+		JsonNode beforeNode = objectMapper.readTree("{\"a\":{\"x\":1,\"y\":2,\"z\":3}}");
+		JsonNode afterNode = objectMapper.readTree("{\"a\":{\"x\":4,\"y\":5,\"z\":6}}");
+		DiffConfig config = DiffConfig.newBuilder().setReplaceRatio(1).addIgnoredPointer(new JsonPointer("/a/x"))
+				.freeze();
+
+		JsonNode patch = JsonDiff.asJson(config, beforeNode, afterNode);
+
+		Assert.assertEquals(patch, objectMapper.readTree("[{\"op\":\"replace\",\"path\":\"/a/y\",\"value\":5},"
+				+ "{\"op\":\"replace\",\"path\":\"/a/z\",\"value\":6}]"));
+	}
+
+	@Test
+	public void deepElementDiffsReachIntoMembers() throws JsonDiffException, IOException, JsonPointerException {
+		JsonNode beforeNode = objectMapper.readTree("{\"Roles\":[{\"id\":\"r1\",\"v\":1,\"Attrs\":{\"x\":1,\"y\":1},"
+				+ "\"Perms\":[{\"p\":\"a\",\"v\":1},{\"p\":\"b\",\"v\":1}]}]}");
+		JsonNode afterNode = objectMapper.readTree("{\"Roles\":[{\"id\":\"r1\",\"v\":2,\"Attrs\":{\"x\":1,\"y\":2},"
+				+ "\"Perms\":[{\"p\":\"b\",\"v\":1},{\"p\":\"a\",\"v\":2}]}]}");
+		DiffConfig config = DiffConfig.newBuilder().setArrayKey(new JsonPointer("/Roles"), "id")
+				.setArrayKey(new JsonPointer("/Roles/*/Perms"), "p").freeze();
+
+		JsonNode shallowPatch = JsonDiff.asJson(config, beforeNode, afterNode);
+		JsonNode deepPatch = JsonDiff.asJson(config.thaw().setDeepElementDiff(true).freeze(), beforeNode, afterNode);
+
+		Assert.assertEquals(shallowPatch.size(), 3);
+		Assert.assertEquals(shallowPatch.get(0).get("path").textValue(), "/Roles/0/Attrs");
+		Assert.assertEquals(shallowPatch.get(1).get("path").textValue(), "/Roles/0/Perms/0/v");
+		Assert.assertEquals(shallowPatch.get(2).get("path").textValue(), "/Roles/0/v");
+		Assert.assertEquals(deepPatch.size(), 3);
+		Assert.assertEquals(deepPatch.get(0).get("path").textValue(), "/Roles/0/Attrs/y");
+		Assert.assertEquals(deepPatch.get(1).get("path").textValue(), "/Roles/0/Perms/0/v");
+		Assert.assertEquals(deepPatch.get(1).get("value"), afterNode.get("Roles").get(0).get("Perms").get(1).get("v"));
+		Assert.assertEquals(deepPatch.get(2).get("path").textValue(), "/Roles/0/v");
+		Assert.assertTrue(JsonDiff.isEquivalent(config.thaw().setDeepElementDiff(true).freeze(), beforeNode,
+				beforeNode.deepCopy()));
+	}
+
+	@Test
+	public void keyedArraysWithinKeyedElementsAreDiffedByKey()
+			throws JsonDiffException, IOException, JsonPointerException {
+		JsonNode beforeNode = objectMapper.readTree("{\"Accounts\":[{\"id\":\"a\",\"Roles\":[{\"Role\":\"r1\"},"
+				+ "{\"Role\":\"r2\",\"v\":1}]},{\"id\":\"b\",\"Roles\":[{\"Role\":\"r1\"}]}]}");
+		JsonNode afterNode = objectMapper.readTree("{\"Accounts\":[{\"id\":\"b\",\"Roles\":[{\"Role\":\"r1\"}]},"
+				+ "{\"id\":\"a\",\"Roles\":[{\"Role\":\"r2\",\"v\":2},{\"Role\":\"r3\"}]}]}");
+		DiffConfig config = DiffConfig.newBuilder().setArrayKey(new JsonPointer("/Accounts"), "id")
+				.setArrayKey(new JsonPointer("/Accounts/*/Roles"), "Role").freeze();
+
+		JsonNode patch = JsonDiff.asJson(config, beforeNode, afterNode);
+
+		Assert.assertEquals(patch, objectMapper.readTree("["
+				+ "{\"op\":\"remove\",\"path\":\"/Accounts/0/Roles/0\",\"original_value\":{\"Role\":\"r1\"}},"
+				+ "{\"op\":\"replace\",\"path\":\"/Accounts/0/Roles/1/v\",\"value\":2,"
+				+ "\"original_value\":{\"Role\":\"r2\",\"v\":1}},"
+				+ "{\"op\":\"add\",\"path\":\"/Accounts/0/Roles/-\",\"value\":{\"Role\":\"r3\"}}]"));
+	}
+
+	@Test(expectedExceptions = JsonDiffException.class)
+	public void keyFieldsMustBeStringsOrSets() throws JsonDiffException, JsonPointerException {
+		Map<JsonPointer, Object> keyFields = new HashMap<>();
+		keyFields.put(new JsonPointer("/a"), 1);
+
+		DiffConfig.fromKeyFields(keyFields);
+	}
+
+	private static final class Unhashable {
+		@Override
+		public int hashCode() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
@@ -0,0 +1,69 @@
+package com.github.fge.jsonpatch.diffcustom;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeTest;
+import org.testng.annotations.Test;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+import com.github.fge.jackson.jsonpointer.JsonPointerException;
+import com.github.fge.jsonpatch.JsonDiffException;
+import com.github.fge.jsonpatch.diff.DiffConfig;
+import com.github.fge.jsonpatch.diff.JsonDiff;
+import com.github.fge.jsonpatch.diff.JsonPatchSink;
+
+public class TestDiffSink {
+	private DiffConfig config;
+	private ObjectMapper objectMapper;
+
+	@BeforeTest
+	public void initialize() throws JsonPointerException {
+		objectMapper = new ObjectMapper();
+
+		Set<String> keyFields = new HashSet<>();
+		keyFields.add("Profile");
+		config = DiffConfig.newBuilder().setCompositeArrayKey(new JsonPointer("/Profiles"), keyFields)
+				.setArrayKey(new JsonPointer("/Groups"), "Group").freeze();
+	}
+
+	@Test(dataProvider = "Provide Data To Json-Diff 1", dataProviderClass = JsonDataProvider.class)
+	public void writtenPatchIsTheSerializedPatch(JsonNode beforeNode, JsonNode afterNode)
+			throws JsonDiffException, IOException {
+		StringWriter writer = new StringWriter();
+		JsonGenerator jgen = objectMapper.getFactory().createGenerator(writer);
+		JsonDiff.writePatch(config, beforeNode, afterNode, jgen);
+		jgen.close();
+
+		Assert.assertEquals(objectMapper.readTree(writer.toString()),
+				JsonDiff.asJson(config, beforeNode, afterNode));
+	}
+
+	@Test(dataProvider = "Provide Data To Json-Diff 1", dataProviderClass = JsonDataProvider.class)
+	public void collectedPatchIsTheDiffPatch(JsonNode beforeNode, JsonNode afterNode)
+			throws JsonDiffException, IOException {
+		JsonPatchSink sink = new JsonPatchSink();
+		JsonDiff.diff(config, beforeNode, afterNode, sink);
+
+		Assert.assertEquals(objectMapper.readTree(objectMapper.writeValueAsString(sink.getPatch())),
+				JsonDiff.asJson(config, beforeNode, afterNode));
+	}
+
+	@Test
+	public void unfactoredDiffHasNoMoves() throws JsonDiffException, IOException {
+		JsonNode beforeNode = objectMapper.readTree("{\"a\":\"x\",\"c\":1}");
+		JsonNode afterNode = objectMapper.readTree("{\"b\":\"x\",\"c\":1}");
+
+		Assert.assertEquals(JsonDiff.asJson(config, beforeNode, afterNode), objectMapper
+				.readTree("[{\"op\":\"move\",\"path\":\"/b\",\"from\":\"/a\"}]"));
+		Assert.assertEquals(JsonDiff.asJson(config.thaw().setFactoring(false).freeze(), beforeNode, afterNode),
+				objectMapper.readTree("[{\"op\":\"remove\",\"path\":\"/a\"},"
+						+ "{\"op\":\"add\",\"path\":\"/b\",\"value\":\"x\"}]"));
+	}
+}
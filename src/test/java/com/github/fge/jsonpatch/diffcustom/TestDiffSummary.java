@@ -0,0 +1,76 @@
+package com.github.fge.jsonpatch.diffcustom;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeTest;
+import org.testng.annotations.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+import com.github.fge.jackson.jsonpointer.JsonPointerException;
+import com.github.fge.jsonpatch.JsonDiffException;
+import com.github.fge.jsonpatch.diff.DiffConfig;
+import com.github.fge.jsonpatch.diff.DiffSummary;
+import com.github.fge.jsonpatch.diff.JsonDiff;
+import com.google.common.collect.ImmutableSet;
+
+public class TestDiffSummary {
+	private ObjectMapper objectMapper;
+
+	@BeforeTest
+	public void initialize() {
+		objectMapper = new ObjectMapper();
+	}
+
+	@Test(dataProvider = "Provide Data To Json-Diff 1", dataProviderClass = JsonDataProvider.class)
+	public void summaryCountsTheOperationsOfThePatch(JsonNode beforeNode, JsonNode afterNode)
+			throws JsonDiffException {
+		JsonNode patch = JsonDiff.asJson(DiffConfig.byDefault(), beforeNode, afterNode);
+		Map<String, Integer> counts = new HashMap<>();
+		for (JsonNode op : patch) {
+			String name = op.get("op").textValue();
+			counts.put(name, counts.containsKey(name) ? counts.get(name) + 1 : 1);
+		}
+
+		DiffSummary summary = JsonDiff.summarize(DiffConfig.byDefault(), beforeNode, afterNode);
+
+		Assert.assertEquals(summary.getTotal(), patch.size());
+		Assert.assertEquals(summary.getAdded(), count(counts, "add"));
+		Assert.assertEquals(summary.getRemoved(), count(counts, "remove"));
+		Assert.assertEquals(summary.getReplaced(), count(counts, "replace"));
+		Assert.assertEquals(summary.getMoved(), count(counts, "move"));
+		Assert.assertEquals(summary.getCopied(), count(counts, "copy"));
+	}
+
+	@Test
+	public void pathsAreTruncatedToTheRequestedDepth() throws JsonDiffException, IOException, JsonPointerException {
+		JsonNode beforeNode = objectMapper.readTree("{\"a\":{\"b\":{\"c\":1}},\"d\":[{\"id\":\"x\",\"v\":1}],\"e\":1}");
+		JsonNode afterNode = objectMapper.readTree("{\"a\":{\"b\":{\"c\":2}},\"d\":[{\"id\":\"x\",\"v\":2}],\"e\":1}");
+		DiffConfig config = DiffConfig.newBuilder().setArrayKey(new JsonPointer("/d"), "id").freeze();
+
+		DiffSummary summary = JsonDiff.summarize(config, beforeNode, afterNode);
+
+		Assert.assertEquals(summary.getReplaced(), 2);
+		Assert.assertEquals(summary.getPaths(), ImmutableSet.of(new JsonPointer("/a"), new JsonPointer("/d")));
+		Assert.assertEquals(JsonDiff.summarize(config, beforeNode, afterNode, 2).getPaths(),
+				ImmutableSet.of(new JsonPointer("/a/b"), new JsonPointer("/d/0")));
+	}
+
+	@Test
+	public void sameValuesHaveAnEmptySummary() throws JsonDiffException, IOException {
+		JsonNode node = objectMapper.readTree("{\"a\":[1,2],\"b\":{}}");
+
+		DiffSummary summary = JsonDiff.summarize(DiffConfig.byDefault(), node, node.deepCopy());
+
+		Assert.assertTrue(summary.isEmpty());
+		Assert.assertTrue(summary.getPaths().isEmpty());
+	}
+
+	private static int count(Map<String, Integer> counts, String op) {
+		return counts.containsKey(op) ? counts.get(op) : 0;
+	}
+}
@@ -0,0 +1,63 @@
+package com.github.fge.jsonpatch.diffcustom;
+
+import java.io.IOException;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeTest;
+import org.testng.annotations.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+import com.github.fge.jackson.jsonpointer.JsonPointerException;
+import com.github.fge.jsonpatch.JsonDiffException;
+import com.github.fge.jsonpatch.diff.DiffConfig;
+import com.github.fge.jsonpatch.diff.JsonDiff;
+
+public class TestEquivalence {
+	private ObjectMapper objectMapper;
+	private DiffConfig keyedConfig;
+
+	@BeforeTest
+	public void initialize() throws JsonPointerException {
+		objectMapper = new ObjectMapper();
+		keyedConfig = DiffConfig.newBuilder().setArrayKey(new JsonPointer("/Roles"), "id").freeze();
+	}
+
+	@Test(dataProvider = "Provide Data To Json-Diff 1", dataProviderClass = JsonDataProvider.class)
+	public void differentValuesAreNotEquivalent(JsonNode beforeNode, JsonNode afterNode) throws JsonDiffException {
+		Assert.assertEquals(JsonDiff.isEquivalent(DiffConfig.byDefault(), beforeNode, afterNode),
+				JsonDiff.asJson(DiffConfig.byDefault(), beforeNode, afterNode).size() == 0);
+		Assert.assertTrue(JsonDiff.isEquivalent(DiffConfig.byDefault(), beforeNode, beforeNode.deepCopy()));
+		Assert.assertTrue(JsonDiff.prepare(DiffConfig.byDefault(), beforeNode).isEquivalent(beforeNode.deepCopy()));
+	}
+
+	@Test
+	public void keyedElementsAreComparedByKey() throws JsonDiffException, IOException {
+		JsonNode beforeNode = objectMapper.readTree("{\"Roles\":[{\"id\":\"r1\",\"v\":1},{\"id\":\"r2\",\"v\":1}]}");
+		JsonNode reordered = objectMapper.readTree("{\"Roles\":[{\"id\":\"r2\",\"v\":1},{\"id\":\"r1\",\"v\":1}]}");
+		JsonNode changed = objectMapper.readTree("{\"Roles\":[{\"id\":\"r2\",\"v\":1},{\"id\":\"r1\",\"v\":2}]}");
+
+		Assert.assertTrue(JsonDiff.isEquivalent(keyedConfig, beforeNode, reordered));
+		Assert.assertFalse(JsonDiff.isEquivalent(keyedConfig, beforeNode, changed));
+	}
+
+	@Test
+	public void nullAndEmptyContainersAreEquivalent() throws JsonDiffException, IOException {
+		JsonNode beforeNode = objectMapper.readTree("{\"a\":null,\"b\":[3,1,2]}");
+		JsonNode afterNode = objectMapper.readTree("{\"a\":[],\"b\":[1,2,3]}");
+
+		Assert.assertTrue(JsonDiff.isEquivalent(DiffConfig.byDefault(), beforeNode, afterNode));
+		Assert.assertEquals(JsonDiff.asJson(DiffConfig.byDefault(), beforeNode, afterNode).size(), 0);
+	}
+
+	@Test
+	public void ignoredMembersAreNotCompared() throws JsonDiffException, IOException, JsonPointerException {
+		JsonNode beforeNode = objectMapper.readTree("{\"a\":1,\"at\":1}");
+		JsonNode afterNode = objectMapper.readTree("{\"a\":1,\"at\":2}");
+		DiffConfig config = DiffConfig.newBuilder().addIgnoredPointer(new JsonPointer("/at")).freeze();
+
+		Assert.assertTrue(JsonDiff.isEquivalent(config, beforeNode, afterNode));
+		Assert.assertFalse(JsonDiff.isEquivalent(DiffConfig.byDefault(), beforeNode, afterNode));
+	}
+}
@@ -0,0 +1,92 @@
+package com.github.fge.jsonpatch.diffcustom;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeTest;
+import org.testng.annotations.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+import com.github.fge.jackson.jsonpointer.JsonPointerException;
+import com.github.fge.jsonpatch.JsonDiffException;
+import com.github.fge.jsonpatch.diff.DiffConfig;
+import com.github.fge.jsonpatch.diff.JsonDiff;
+import com.github.fge.jsonpatch.diff.PreparedSource;
+
+public class TestPreparedSource {
+	private DiffConfig compositeConfig;
+	private ObjectMapper objectMapper;
+
+	@BeforeTest
+	public void initialize() throws JsonPointerException {
+		objectMapper = new ObjectMapper();
+
+		Set<String> set1 = new HashSet<>();
+		set1.add("Profile");
+		Set<String> set2 = new HashSet<>();
+		set2.add("b");
+		set2.add("Group");
+		compositeConfig = DiffConfig.newBuilder()
+				.setCompositeArrayKey(new JsonPointer("/Profiles"), set1)
+				.setCompositeArrayKey(new JsonPointer("/Grouppp"), set2)
+				.freeze();
+	}
+
+	@Test(dataProvider = "Provide Data To Json-Diff 1", dataProviderClass = JsonDataProvider.class)
+	public void preparedDiffIsDiff(JsonNode beforeNode, JsonNode afterNode) throws JsonDiffException {
+		PreparedSource prepared = JsonDiff.prepare(compositeConfig, beforeNode);
+
+		Assert.assertEquals(prepared.asJson(afterNode), JsonDiff.asJson(compositeConfig, beforeNode, afterNode));
+		Assert.assertEquals(prepared.asJsonPatch(beforeNode.deepCopy()).toString(), "[]");
+	}
+
+	@Test(dataProvider = "Provide Data To Json-Diff 1", dataProviderClass = JsonDataProvider.class)
+	public void preparedSourceIsDiffedConcurrently(final JsonNode beforeNode, JsonNode afterNode)
+			throws Exception {
+		final PreparedSource prepared = JsonDiff.prepare(compositeConfig, beforeNode);
+		List<JsonNode> targets = new ArrayList<>();
+		for (int i = 0; i < 16; i++) {
+			ObjectNode target = afterNode.deepCopy();
+			target.put("revision", i);
+			targets.add(target);
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<JsonNode>> patches = new ArrayList<>();
+			for (final JsonNode target : targets)
+				patches.add(executor.submit(new Callable<JsonNode>() {
+					@Override
+					public JsonNode call() throws JsonDiffException {
+						return prepared.asJson(target);
+					}
+				}));
+			for (int i = 0; i < targets.size(); i++)
+				Assert.assertEquals(patches.get(i).get(), JsonDiff.asJson(compositeConfig, beforeNode, targets.get(i)));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test(expectedExceptions = JsonDiffException.class)
+	public void missingKeysAreReportedWhenDiffing() throws JsonDiffException, IOException, JsonPointerException {
+		Set<String> key = new HashSet<>();
+		key.add("id");
+		key.add("v");
+		DiffConfig config = DiffConfig.newBuilder().setCompositeArrayKey(new JsonPointer("/a"), key).freeze();
+		PreparedSource prepared = JsonDiff.prepare(config, objectMapper.readTree("{\"a\":[{\"id\":1}]}"));
+
+		prepared.asJson(objectMapper.readTree("{\"a\":[{\"id\":1,\"v\":2}]}"));
+	}
+}
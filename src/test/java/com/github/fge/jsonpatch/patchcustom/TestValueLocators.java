@@ -0,0 +1,115 @@
+package com.github.fge.jsonpatch.patchcustom;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.fge.jsonpatch.JsonPatch;
+import com.github.fge.jsonpatch.JsonPatchException;
+
+public class TestValueLocators {
+
+	private ObjectMapper objectMapper = new ObjectMapper();
+
+	@Test
+	public void testLocatorsFollowShiftedElements() throws IOException, JsonPatchException {
+		JsonNode originalData = objectMapper.readTree("{\"Roles\":[{\"ROLE\":\"a\"},{\"ROLE\":\"b\",\"n\":1},"
+				+ "{\"ROLE\":\"c\"},{\"ROLE\":\"d\",\"n\":1}]}");
+		JsonNode operations = objectMapper.readTree("["
+				+ "{\"op\":\"remove\",\"path\":\"/Roles/?\",\"value_locator\":{\"ROLE\":\"a\"}},"
+				+ "{\"op\":\"remove\",\"path\":\"/Roles/?\",\"value_locator\":{\"ROLE\":\"c\"}},"
+				+ "{\"op\":\"add\",\"path\":\"/Roles/-\",\"value\":{\"ROLE\":\"e\"}},"
+				+ "{\"op\":\"replace\",\"path\":\"/Roles/?/ROLE\",\"value\":\"f\",\"value_locator\":{\"ROLE\":\"b\"}},"
+				+ "{\"op\":\"replace\",\"path\":\"/Roles/?/n\",\"value\":2,\"value_locator\":{\"ROLE\":\"d\"}},"
+				+ "{\"op\":\"add\",\"path\":\"/Roles/?/n\",\"value\":3,\"value_locator\":{\"ROLE\":\"e\"}},"
+				+ "{\"op\":\"add\",\"path\":\"/Roles/?/n\",\"value\":4,\"value_locator\":{\"ROLE\":\"f\"}}]");
+		JsonNode expected = objectMapper.readTree("{\"Roles\":[{\"ROLE\":\"f\",\"n\":4},{\"ROLE\":\"d\",\"n\":2},"
+				+ "{\"ROLE\":\"e\",\"n\":3}]}");
+
+		JsonNode patched = JsonPatch.fromJson(operations).apply(originalData, true);
+
+		Assert.assertEquals(patched, expected);
+	}
+
+	@Test
+	public void testLocatorsAfterArrayIsMovedAndBack() throws IOException, JsonPatchException {
+		JsonNode originalData = objectMapper.readTree("{\"X\":\"x\",\"Roles\":[{\"ROLE\":\"a\"},{\"ROLE\":\"b\"},"
+				+ "{\"ROLE\":\"c\"}]}");
+		JsonNode operations = objectMapper.readTree("["
+				+ "{\"op\":\"remove\",\"path\":\"/Roles/?\",\"value_locator\":{\"ROLE\":\"a\"}},"
+				+ "{\"op\":\"move\",\"from\":\"/Roles\",\"path\":\"/Tmp\"},"
+				+ "{\"op\":\"copy\",\"from\":\"/X\",\"path\":\"/Tmp/0/ROLE\"},"
+				+ "{\"op\":\"move\",\"from\":\"/Tmp\",\"path\":\"/Roles\"},"
+				+ "{\"op\":\"add\",\"path\":\"/Roles/?/n\",\"value\":9,\"value_locator\":{\"ROLE\":\"x\"}}]");
+		JsonNode expected = objectMapper.readTree("{\"X\":\"x\",\"Roles\":[{\"ROLE\":\"x\",\"n\":9},{\"ROLE\":\"c\"}]}");
+
+		JsonNode patched = JsonPatch.fromJson(operations).apply(originalData, true);
+
+		Assert.assertEquals(patched, expected);
+	}
+
+	@Test
+	public void testLocatorsInLargeArray() throws IOException, JsonPatchException {
+		ObjectNode originalData = objectMapper.createObjectNode();
+		ArrayNode roles = originalData.putArray("Roles");
+		ArrayNode operations = objectMapper.createArrayNode();
+		for (int index = 0; index < 1000; index++)
+			roles.addObject().put("ROLE", "r" + index).put("n", index);
+		for (int index = 0; index < 1000; index += 2) {
+			ObjectNode operation = operations.addObject().put("op", "remove").put("path", "/Roles/?");
+			operation.putObject("value_locator").put("ROLE", "r" + index);
+		}
+		for (int index = 1; index < 1000; index += 2) {
+			ObjectNode operation = operations.addObject().put("op", "replace").put("path", "/Roles/?/n");
+			operation.put("value", -index).putObject("value_locator").put("ROLE", "r" + index);
+		}
+
+		JsonNode patched = JsonPatch.fromJson(operations).apply(originalData, true);
+
+		Assert.assertEquals(patched.get("Roles").size(), 500);
+		for (int position = 0; position < 500; position++) {
+			JsonNode role = patched.get("Roles").get(position);
+			Assert.assertEquals(role.get("ROLE").textValue(), "r" + (2 * position + 1));
+			Assert.assertEquals(role.get("n").intValue(), -(2 * position + 1));
+		}
+	}
+
+	@Test
+	public void testConcurrentApplications() throws Exception {
+		final JsonNode originalData = objectMapper.readTree("{\"Roles\":[{\"ROLE\":\"a\"},{\"ROLE\":\"b\",\"n\":1}]}");
+		JsonNode operations = objectMapper.readTree("["
+				+ "{\"op\":\"remove\",\"path\":\"/Roles/?\",\"value_locator\":{\"ROLE\":\"a\"}},"
+				+ "{\"op\":\"replace\",\"path\":\"/Roles/?/n\",\"value\":2,\"value_locator\":{\"ROLE\":\"b\"}}]");
+		JsonNode expected = objectMapper.readTree("{\"Roles\":[{\"ROLE\":\"b\",\"n\":2}]}");
+		final JsonPatch patch = JsonPatch.fromJson(operations);
+		String before = patch.toString();
+
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<JsonNode>> results = new ArrayList<Future<JsonNode>>();
+			for (int index = 0; index < 2000; index++)
+				results.add(executor.submit(new Callable<JsonNode>() {
+					@Override
+					public JsonNode call() throws JsonPatchException {
+						return patch.apply(originalData, true);
+					}
+				}));
+			for (Future<JsonNode> result : results)
+				Assert.assertEquals(result.get(), expected);
+		} finally {
+			executor.shutdown();
+		}
+		Assert.assertEquals(patch.toString(), before);
+	}
+}